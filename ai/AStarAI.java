@@ -0,0 +1,771 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static java.lang.Math.*;
+
+/*
+Implementation of DriverAI which uses A* search to find the shortest route to finish.
+This AI takes into consideration all special tiles and their functions the same way as BFSAI
+and finds a route with the same (lowest possible) number of turns, but it searches fewer states.
+(About 1.5 to 3 times fewer on the bundled maps, e.g. 825,520 instead of about 2.53 million states on Map03.)
+The search is guided by a lower bound of the number of turns the car still needs, the bigger one of these two:
+- Distance fields (computed by BFS over all tiles except WALL and WATER) give the lowest number of tiles
+  the car has to drive over to reach the finish through all checkpoints which have not been passed yet.
+  The tiles the car drives over in one turn always contain a path of steps to the next tile which is not longer
+  than the bigger coordinate of the velocity vector, and the car can only speed up by one each turn.
+  So in T turns the car gets at most T * speed + (1 + 2 + ... + T) steps closer to finish.
+- In each axis, the car has to get into the range of coordinates of the finish and of each checkpoint
+  which has not been passed yet. If it drives away from one of them, it has to brake and turn around by one
+  each turn, or stop on SAND (or by a crash if there is no SAND on the map) and start again.
+  (Adding this bound lowers the number of expanded states from 948,741 to 825,520 on Map03, from 78,986 to 61,996
+  on HugeWoCheckpoints and from 20,329 to 18,220 on Map02. The search takes about as long as before,
+  because the bound takes longer to compute.)
+The bound never overestimates, so the first route to finish taken from the open list is the fastest one.
+States reached again in fewer turns are opened again.
+The map is read through MapView: the tiles by their flags and the checkpoints by the indexes given by the game,
+so the checkpoints are the same as the ones the game counts.
+ */
+@SuppressWarnings("Duplicates")
+public class AStarAI implements DriverAI {
+
+    // Goes through the moves generated in init() method to go through the race.
+    // Does not accelerate if no route to finish has been found.
+    public int[] drive(int[] carCoordinates, int[] carVelocity, MapView map) {
+        step++;
+        while (step < movesToFinish.size() && movesToFinish.get(step) == null) {
+            step++;
+        }
+        if (step >= movesToFinish.size()) {
+            return new int[]{0,0};
+        }
+        return movesToFinish.get(step);
+    }
+
+    // Not used: the game calls drive() with MapView.
+    public int[] drive(int[] carCoordinates, int[] carVelocity, Tile[][] map) {
+        throw new UnsupportedOperationException("AStarAI reads the map through MapView.");
+    }
+
+    // Used as the distance of tiles from which the target cannot be reached.
+    private static final int UNREACHABLE = Integer.MAX_VALUE / 4;
+
+    // The map.
+    private MapView map;
+    // Width and height of the map.
+    private int width, height;
+    // Start coordinates.
+    private int[] start;
+    // Coordinates of each tile of each Checkpoint. (The Checkpoints are indexed by the game, see MapView.checkpointAt().)
+    private ArrayList<ArrayList<int[]>> checkpoints;
+    // Checkpoints passed in the form of a bit mask with the bits of all Checkpoints set.
+    private long allCheckpoints;
+    // Lowest number of tiles the car has to drive over from each tile to Finish.
+    private int[][] finishDistance;
+    // Lowest number of tiles the car has to drive over from each tile to each Checkpoint.
+    private int[][][] checkpointDistance;
+    // Lowest number of tiles the car has to drive over from each Checkpoint to Finish.
+    private int[] checkpointToFinish;
+    // The lowest and the highest x and y coordinates of the tiles of Finish and of each Checkpoint.
+    // ({minX, maxX, minY, maxY})
+    private int[] finishArea;
+    private int[][] checkpointArea;
+    // Lowest number of turns which the car spends by stopping when it drives away from a target:
+    // one turn on SAND, or one turn and three turns of waiting after a crash if there is no SAND on the map.
+    private int stopTurns;
+    // All searched states.
+    private AStarTree tree;
+    // States which are yet to be expanded ordered by their estimated number of turns to finish.
+    private AStarQueue open;
+    // Lowest number of turns in which each visited state has been reached. (See packState().)
+    private BestTurns bestTurns;
+    // Number of bits used for each part of the key of a visited state.
+    private int xBits, yBits, vxBits, vyBits, wallBits;
+    // The state created by the last call of createNewState() or waitAfterCrash().
+    private int newX, newY, newVx, newVy, newWall;
+    private byte newType;
+    private long newCheckpoints;
+    // The result of the search. Contains moves to finish the race.
+    private ArrayList<int[]> movesToFinish;
+    // Used to go through 'movesToFinish' step by step in each call of the drive() method.
+    private int step;
+
+    // Initializes fields. Handles the A* search loop to find the shortest path to finish.
+    public void init(MapView map) {
+        this.map = map;
+        width = map.getWidth();
+        height = map.getHeight();
+        findStart();
+        findCheckpoints();
+        initStateBits();
+        initDistances();
+        tree = new AStarTree();
+        open = new AStarQueue(tree);
+        bestTurns = new BestTurns();
+
+        System.out.println("Start: " + start[0] + " " + start[1]);
+        System.out.println("Checkpoints: " + checkpoints.size());
+
+        int root = tree.add(start[0], start[1], 0, 0, 0, AStarTree.NORMAL, 0L, -1, AStarTree.NO_MOVE,
+                0, heuristic(start[0], start[1], 0, 0, 0, 0L));
+        bestTurns.put(packState(start[0], start[1], 0, 0, 0, 0L), 0);
+        open.push(root);
+
+        movesToFinish = null;
+        int expanded = 0;
+        while (!open.isEmpty()) {
+            int state = open.pop();
+            if (tree.getType(state) == AStarTree.FINISH) {
+                movesToFinish = getMoves(state);
+                System.out.println("Finish found in " + tree.getTurns(state) + " turns (" + expanded + " states expanded)");
+                break;
+            }
+            if (tree.getTurns(state) > bestTurns.get(keyOf(state))) {
+                // The state has been reached in fewer turns since it was opened.
+                continue;
+            }
+            expanded++;
+            if (tree.getType(state) == AStarTree.ICE) {
+                // No move will be made this turn as the Car is on ICE.
+                createNewState(state, 0, 0);
+                addState(state, AStarTree.NO_MOVE);
+            } else if (tree.getWall(state) > 0) {
+                // No move will be made this turn as the Car is crashed.
+                waitAfterCrash(state);
+                addState(state, AStarTree.NO_MOVE);
+            } else {
+                for (int dx = -1; dx <= 1; dx++) {
+                    for (int dy = -1; dy <= 1; dy++) {
+                        createNewState(state, dx, dy);
+                        addState(state, AStarTree.encodeMove(dx, dy));
+                    }
+                }
+            }
+        }
+
+        if (movesToFinish == null) {
+            System.out.println("No route to finish found (" + expanded + " states expanded)");
+            movesToFinish = new ArrayList<>();
+        }
+        step = -1;
+    }
+
+    // Not used: the game calls init() with MapView.
+    public void init(Tile[][] map) {
+        throw new UnsupportedOperationException("AStarAI reads the map through MapView.");
+    }
+
+    // Opens the new state unless the car sank or the state has already been reached in as few turns.
+    private void addState(int parent, byte move) {
+        if (newType == AStarTree.WATER) {
+            return;
+        }
+        int turns = tree.getTurns(parent) + 1;
+        if (newType == AStarTree.FINISH) {
+            open.push(tree.add(newX, newY, newVx, newVy, newWall, newType, newCheckpoints, parent, move, turns, turns));
+            return;
+        }
+        long key = packState(newX, newY, newVx, newVy, newWall, newCheckpoints);
+        if (turns >= bestTurns.get(key)) {
+            return;
+        }
+        int estimate = heuristic(newX, newY, newVx, newVy, newWall, newCheckpoints);
+        if (estimate >= UNREACHABLE) {
+            return;
+        }
+        bestTurns.put(key, turns);
+        open.push(tree.add(newX, newY, newVx, newVy, newWall, newType, newCheckpoints, parent, move, turns, turns + estimate));
+    }
+
+    // Returns the moves which lead from the Start to the given state.
+    // Turns in which no move is made are represented by null.
+    private ArrayList<int[]> getMoves(int state) {
+        ArrayList<int[]> moves = new ArrayList<>();
+        for (; tree.getParent(state) != -1; state = tree.getParent(state)) {
+            moves.add(AStarTree.decodeMove(tree.getMove(state)));
+        }
+        Collections.reverse(moves);
+        return moves;
+    }
+
+    // Returns the lowest number of turns in which the car can get from the state to Finish.
+    // Returns UNREACHABLE if Finish cannot be reached from the state.
+    // Takes the bigger of the bound given by the distance fields and the direction of the velocity
+    // and the bound given by the velocity in each axis towards Finish and each Checkpoint which has not been passed yet.
+    private int heuristic(int x, int y, int vx, int vy, int wall, long checkpointsPassed) {
+        int distance = remainingDistance(x, y, checkpointsPassed);
+        if (distance >= UNREACHABLE) {
+            return UNREACHABLE;
+        }
+        int turns = turnsToCover(distance, max(abs(vx), abs(vy)));
+        turns = max(turns, areaTurns(finishArea, x, y, vx, vy));
+        for (int i = 0; i < checkpointArea.length; i++) {
+            if ((checkpointsPassed & (1L << i)) == 0) {
+                turns = max(turns, areaTurns(checkpointArea[i], x, y, vx, vy));
+            }
+        }
+        return wall + turns;
+    }
+
+    // Returns the lowest number of turns in which the car can drive over a tile within the x and y ranges of the area.
+    // (The tiles the car drives over in one turn lie between its coordinates before and after the turn in both axes.)
+    private int areaTurns(int[] area, int x, int y, int vx, int vy) {
+        return max(axisTurns(x, vx, area[0], area[1]), axisTurns(y, vy, area[2], area[3]));
+    }
+
+    // Returns the lowest number of turns in which the car can get from the coordinate with the velocity
+    // to the range from 'low' to 'high' in one axis.
+    private int axisTurns(int coordinate, int velocity, int low, int high) {
+        if (coordinate < low) {
+            return approachTurns(low - coordinate, velocity);
+        } else if (coordinate > high) {
+            return approachTurns(coordinate - high, -velocity);
+        }
+        return 0;
+    }
+
+    // Returns the lowest number of turns in which the car gets the distance closer with the velocity towards the target.
+    // If the car drives away from the target, it either brakes and turns around by one each turn,
+    // or it stops (on SAND or by a crash) and starts again from zero velocity.
+    private int approachTurns(int distance, int velocity) {
+        if (velocity >= 0) {
+            return turnsToCover(distance, velocity);
+        }
+        return min(turnsToCover(distance, velocity), stopTurns + turnsToCover(distance, 0));
+    }
+
+    // Returns the lowest number of turns in which the car gets the distance closer if it starts with the speed
+    // and speeds up by one each turn. (In T turns it gets at most T * speed + (1 + 2 + ... + T) closer.)
+    private static int turnsToCover(int distance, int speed) {
+        int turns = 0;
+        long covered = 0;
+        while (covered < distance) {
+            turns++;
+            covered += speed + turns;
+        }
+        return turns;
+    }
+
+    // Returns the lowest number of tiles the car has to drive over from the tile to Finish
+    // through all Checkpoints which have not been passed yet.
+    // (At least the distance through the Checkpoint which is the furthest one of them.)
+    private int remainingDistance(int x, int y, long checkpointsPassed) {
+        if (checkpointsPassed == allCheckpoints) {
+            return finishDistance[x][y];
+        }
+        int distance = 0;
+        for (int i = 0; i < checkpoints.size(); i++) {
+            if ((checkpointsPassed & (1L << i)) == 0) {
+                distance = max(distance, checkpointDistance[i][x][y] + checkpointToFinish[i]);
+            }
+        }
+        return min(distance, UNREACHABLE);
+    }
+
+    // Creates the state in which the Car stays after the crash for one more turn.
+    private void waitAfterCrash(int state) {
+        newX = tree.getX(state);
+        newY = tree.getY(state);
+        newVx = 0;
+        newVy = 0;
+        newWall = tree.getWall(state) - 1;
+        newType = AStarTree.NORMAL;
+        newCheckpoints = tree.getCheckpoints(state);
+    }
+
+    // Checks the path which would be taken by the car going from the state with the given acceleration.
+    // Checks for special tiles in the path using the checkForSpecialTiles() method
+    // and creates "special" state if a special tile is encountered.
+    // If no special tile is encountered, creates "normal" state at the end.
+    // (The path of the car is taken from the SweptPaths table used by the game itself.)
+    private void createNewState(int state, int ax, int ay) {
+        int initX = tree.getX(state);
+        int initY = tree.getY(state);
+        int vx = tree.getVx(state) + ax;
+        int vy = tree.getVy(state) + ay;
+        newCheckpoints = tree.getCheckpoints(state);
+        int[] offsets = SweptPaths.get(vx, vy);
+
+        int lastX = initX;
+        int lastY = initY;
+
+        for (int i = 0; i < offsets.length; i += 2) {
+            int x = initX + offsets[i];
+            int y = initY + offsets[i + 1];
+            if (checkForSpecialTiles(x, y, lastX, lastY, vx, vy, i == offsets.length - 2)) {
+                return;
+            }
+            lastX = x;
+            lastY = y;
+        }
+
+        setNewState(initX + vx, initY + vy, vx, vy, 0, AStarTree.NORMAL);
+    }
+
+    // Checks for special tile. Creates "special" state and returns true if a special tile is encountered.
+    // Returns false otherwise. (Tiles outside the map have the WALL flag.)
+    private boolean checkForSpecialTiles(int x, int y, int lastX, int lastY, int vx, int vy, boolean lastTile) {
+        int flags = map.tileFlags(x, y);
+        if ((flags & MapView.WALL) != 0) {
+            setNewState(lastX, lastY, 0, 0, 3, AStarTree.NORMAL);
+            return true;
+        } else if ((flags & MapView.WATER) != 0) {
+            setNewState(x, y, 0, 0, 0, AStarTree.WATER);
+            return true;
+        } else if ((flags & MapView.SAND) != 0) {
+            setNewState(x, y, 0, 0, 0, AStarTree.NORMAL);
+            return true;
+        } else if ((flags & MapView.FINISH) != 0) {
+            if (newCheckpoints == allCheckpoints) {
+                setNewState(x, y, 0, 0, 0, AStarTree.FINISH);
+                return true;
+            }
+        } else if (lastTile && (flags & MapView.ICE) != 0) {
+            setNewState(x, y, vx, vy, 0, AStarTree.ICE);
+            return true;
+        } else if ((flags & MapView.CHECKPOINT) != 0) {
+            newCheckpoints |= 1L << map.checkpointAt(x, y);
+        }
+        return false;
+    }
+
+    // Saves the given values as the new state. (The checkpoints passed are already saved.)
+    private void setNewState(int x, int y, int vx, int vy, int wall, byte type) {
+        newX = x;
+        newY = y;
+        newVx = vx;
+        newVy = vy;
+        newWall = wall;
+        newType = type;
+    }
+
+    // Computes the distance fields and the areas of Finish and of each Checkpoint.
+    private void initDistances() {
+        ArrayList<int[]> finishTiles = new ArrayList<>();
+        boolean sand = false;
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if ((map.tileFlags(x, y) & MapView.FINISH) != 0) {
+                    finishTiles.add(new int[]{x,y});
+                }
+                if ((map.tileFlags(x, y) & MapView.SAND) != 0) {
+                    sand = true;
+                }
+            }
+        }
+        stopTurns = sand ? 1 : 4;
+        finishDistance = distanceField(finishTiles);
+        finishArea = area(finishTiles);
+
+        checkpointDistance = new int[checkpoints.size()][][];
+        checkpointToFinish = new int[checkpoints.size()];
+        checkpointArea = new int[checkpoints.size()][];
+        for (int i = 0; i < checkpoints.size(); i++) {
+            checkpointArea[i] = area(checkpoints.get(i));
+            checkpointDistance[i] = distanceField(checkpoints.get(i));
+            checkpointToFinish[i] = UNREACHABLE;
+            for (int[] tile : checkpoints.get(i)) {
+                checkpointToFinish[i] = min(checkpointToFinish[i], finishDistance[tile[0]][tile[1]]);
+            }
+        }
+    }
+
+    // Returns the lowest and the highest x and y coordinates of the tiles. ({minX, maxX, minY, maxY})
+    private static int[] area(ArrayList<int[]> tiles) {
+        int[] area = {Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int[] tile : tiles) {
+            area[0] = min(area[0], tile[0]);
+            area[1] = max(area[1], tile[0]);
+            area[2] = min(area[2], tile[1]);
+            area[3] = max(area[3], tile[1]);
+        }
+        return area;
+    }
+
+    // Returns the lowest number of steps to the nearest of the given tiles from each tile.
+    // The car can step to any adjacent tile including diagonal ones which is not WALL or WATER.
+    private int[][] distanceField(ArrayList<int[]> targets) {
+        int[][] distance = new int[width][height];
+        for (int[] column : distance) {
+            Arrays.fill(column, UNREACHABLE);
+        }
+        int[] queue = new int[width * height];
+        int head = 0;
+        int tail = 0;
+        for (int[] tile : targets) {
+            distance[tile[0]][tile[1]] = 0;
+            queue[tail++] = tile[0] * height + tile[1];
+        }
+        while (head < tail) {
+            int x = queue[head] / height;
+            int y = queue[head++] % height;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    int nextX = x + dx;
+                    int nextY = y + dy;
+                    if ((map.tileFlags(nextX, nextY) & (MapView.WALL | MapView.WATER)) == 0
+                            && distance[nextX][nextY] == UNREACHABLE) {
+                        distance[nextX][nextY] = distance[x][y] + 1;
+                        queue[tail++] = nextX * height + nextY;
+                    }
+                }
+            }
+        }
+        return distance;
+    }
+
+    // Computes the number of bits needed for each part of the key of a visited state.
+    // Coordinates are within the map and so are the targets of all moves, so the velocity
+    // is between -(size - 1) and (size - 1). The after-crash waiting time is at most 3.
+    // Throws IllegalStateException if the key would not fit into a long.
+    private void initStateBits() {
+        xBits = bitsFor(width);
+        yBits = bitsFor(height);
+        vxBits = bitsFor(2 * width - 1);
+        vyBits = bitsFor(2 * height - 1);
+        wallBits = bitsFor(4);
+        int total = xBits + yBits + vxBits + vyBits + wallBits + checkpoints.size();
+        if (total > 64) {
+            throw new IllegalStateException("The map is too big for AStarAI: a state needs " + total + " bits.");
+        }
+        allCheckpoints = (1L << checkpoints.size()) - 1;
+    }
+
+    // Returns the number of bits needed to store numbers from 0 to (values - 1).
+    private static int bitsFor(int values) {
+        return 32 - Integer.numberOfLeadingZeros(max(values - 1, 1));
+    }
+
+    // Returns the key of the state saved in the tree.
+    private long keyOf(int state) {
+        return packState(tree.getX(state), tree.getY(state), tree.getVx(state), tree.getVy(state),
+                tree.getWall(state), tree.getCheckpoints(state));
+    }
+
+    // Packs the coordinates, velocity values, after-crash waiting time and checkpoints passed into one long.
+    private long packState(int x, int y, int vx, int vy, int wall, long checkpointsPassed) {
+        long key = x;
+        key = (key << yBits) | y;
+        key = (key << vxBits) | (vx + width - 1);
+        key = (key << vyBits) | (vy + height - 1);
+        key = (key << wallBits) | wall;
+        key = (key << checkpoints.size()) | checkpointsPassed;
+        return key;
+    }
+
+    // Finds and saves the coordinates of the Start.
+    private void findStart() {
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (map.tileAt(x, y) == Tile.START) {
+                    start = new int[]{x,y};
+                }
+            }
+        }
+    }
+
+    // Saves the coordinates of each tile of each Checkpoint under the index of the Checkpoint given by the game.
+    private void findCheckpoints() {
+        checkpoints = new ArrayList<>();
+        for (int i = 0; i < map.getCheckpointCount(); i++) {
+            checkpoints.add(new ArrayList<>());
+        }
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                int checkpoint = map.checkpointAt(x, y);
+                if (checkpoint != -1) {
+                    checkpoints.get(checkpoint).add(new int[]{x,y});
+                }
+            }
+        }
+    }
+
+}
+
+
+
+
+// Tree of all searched states saved in primitive arrays.
+// Each state saves its coordinates, velocity values, after-crash waiting time, type (normal, ICE, WATER or FINISH),
+// checkpoints passed, the index of its parent state, the move which leads from the parent state to it,
+// the number of turns in which it is reached and the estimated number of turns to finish through it.
+class AStarTree {
+
+    // Types of states.
+    static final byte NORMAL = 0, ICE = 1, WATER = 2, FINISH = 3;
+    // Saved as the move of states which are reached without making a move. (On ICE or after crash.)
+    static final byte NO_MOVE = -1;
+
+    // Values of all states. The values of one state have the same index in all arrays.
+    private int[] x, y, vx, vy, parent, turns, estimate;
+    private byte[] wall, type, move;
+    private long[] checkpoints;
+    // Number of saved states.
+    private int size;
+
+    AStarTree() {
+        x = new int[1024];
+        y = new int[1024];
+        vx = new int[1024];
+        vy = new int[1024];
+        parent = new int[1024];
+        turns = new int[1024];
+        estimate = new int[1024];
+        wall = new byte[1024];
+        type = new byte[1024];
+        move = new byte[1024];
+        checkpoints = new long[1024];
+        size = 0;
+    }
+
+    // Adds new state to the tree and returns its index.
+    int add(int x, int y, int vx, int vy, int wall, byte type, long checkpoints, int parent, byte move, int turns, int estimate) {
+        if (size == this.x.length) {
+            grow();
+        }
+        this.x[size] = x;
+        this.y[size] = y;
+        this.vx[size] = vx;
+        this.vy[size] = vy;
+        this.wall[size] = (byte) wall;
+        this.type[size] = type;
+        this.checkpoints[size] = checkpoints;
+        this.parent[size] = parent;
+        this.move[size] = move;
+        this.turns[size] = turns;
+        this.estimate[size] = estimate;
+        return size++;
+    }
+
+    // Doubles the capacity of all arrays.
+    private void grow() {
+        int capacity = 2 * x.length;
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        vx = Arrays.copyOf(vx, capacity);
+        vy = Arrays.copyOf(vy, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        turns = Arrays.copyOf(turns, capacity);
+        estimate = Arrays.copyOf(estimate, capacity);
+        wall = Arrays.copyOf(wall, capacity);
+        type = Arrays.copyOf(type, capacity);
+        move = Arrays.copyOf(move, capacity);
+        checkpoints = Arrays.copyOf(checkpoints, capacity);
+    }
+
+    // Encodes the move (acceleration from -1 to 1 in both coordinates) into one byte.
+    static byte encodeMove(int ax, int ay) {
+        return (byte) ((ax + 1) * 3 + ay + 1);
+    }
+
+    // Decodes the move saved by encodeMove(). Returns null for NO_MOVE.
+    static int[] decodeMove(byte move) {
+        if (move == NO_MOVE) {
+            return null;
+        }
+        return new int[]{move / 3 - 1, move % 3 - 1};
+    }
+
+    int getX(int state) {
+        return x[state];
+    }
+
+    int getY(int state) {
+        return y[state];
+    }
+
+    int getVx(int state) {
+        return vx[state];
+    }
+
+    int getVy(int state) {
+        return vy[state];
+    }
+
+    int getWall(int state) {
+        return wall[state];
+    }
+
+    byte getType(int state) {
+        return type[state];
+    }
+
+    long getCheckpoints(int state) {
+        return checkpoints[state];
+    }
+
+    int getParent(int state) {
+        return parent[state];
+    }
+
+    byte getMove(int state) {
+        return move[state];
+    }
+
+    int getTurns(int state) {
+        return turns[state];
+    }
+
+    int getEstimate(int state) {
+        return estimate[state];
+    }
+
+}
+
+
+
+
+// Binary heap of the indexes of open states.
+// The state with the lowest estimate is taken first. Of states with the same estimate, the one reached
+// in more turns (closer to finish) is taken first, then the one opened first.
+class AStarQueue {
+
+    // The tree in which are the states saved.
+    private AStarTree tree;
+    // The heap of the indexes of states.
+    private int[] heap;
+    // Number of states in the heap.
+    private int size;
+
+    AStarQueue(AStarTree tree) {
+        this.tree = tree;
+        heap = new int[1024];
+        size = 0;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Adds the state to the heap.
+    void push(int state) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, 2 * size);
+        }
+        int i = size++;
+        while (i > 0 && before(state, heap[(i - 1) / 2])) {
+            heap[i] = heap[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        heap[i] = state;
+    }
+
+    // Removes and returns the first state of the heap.
+    int pop() {
+        int first = heap[0];
+        int last = heap[--size];
+        int i = 0;
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], last)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return first;
+    }
+
+    // Returns true if state 'a' is to be taken before state 'b'.
+    private boolean before(int a, int b) {
+        if (tree.getEstimate(a) != tree.getEstimate(b)) {
+            return tree.getEstimate(a) < tree.getEstimate(b);
+        }
+        if (tree.getTurns(a) != tree.getTurns(b)) {
+            return tree.getTurns(a) > tree.getTurns(b);
+        }
+        return a < b;
+    }
+
+}
+
+
+
+
+// Map from the keys of visited states to the lowest number of turns in which they have been reached.
+// (Open addressing with linear probing.) Zero marks an empty slot, so the key zero is saved separately.
+class BestTurns {
+
+    // The keys in the slots. The length is always a power of two.
+    private long[] keys;
+    // The number of turns saved for the key in the same slot.
+    private int[] values;
+    // Number of keys saved in the slots.
+    private int size;
+    // Stores information about the key zero being in the map and its number of turns.
+    private boolean containsZero;
+    private int zeroValue;
+
+    BestTurns() {
+        keys = new long[1024];
+        values = new int[1024];
+        size = 0;
+        containsZero = false;
+    }
+
+    // Returns the number of turns saved for the key or Integer.MAX_VALUE if there is none.
+    int get(long key) {
+        if (key == 0) {
+            return containsZero ? zeroValue : Integer.MAX_VALUE;
+        }
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    // Saves the number of turns for the key.
+    void put(long key, int value) {
+        if (key == 0) {
+            containsZero = true;
+            zeroValue = value;
+            return;
+        }
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != 0 && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == 0) {
+            keys[i] = key;
+            size++;
+        }
+        values[i] = value;
+        if (2 * size > keys.length) {
+            grow();
+        }
+    }
+
+    // Doubles the number of slots and saves all keys again.
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[2 * oldKeys.length];
+        values = new int[2 * oldValues.length];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != 0) {
+                int i = hash(oldKeys[j]) & mask;
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    // Spreads the bits of the key, so keys which differ only in a few bits end up in different slots.
+    private static int hash(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+
+}
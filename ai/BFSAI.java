@@ -1,19 +1,47 @@
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 import static java.lang.Math.*;
 
 /*
 Implementation of DriverAI which uses Breadth-First-Search to find the shortest route to finish.
 This AI does take into consideration all special tiles and their functions. (Is able to use sand to brake etc.)
-It is guaranteed to always find the fastest path. However, it is only practical for smaller maps
-or for maps without much open space (e.g. labyrinth-like maps) as it would take hours to calculate the best path
-for a big map with a lot of open space this way.
+It is guaranteed to always find the fastest path.
+The map is read through MapView: the tiles by their flags and the checkpoints by the indexes given by the game,
+so the checkpoints are the same as the ones the game counts.
+Each visited state (coordinates, velocity, after-crash waiting time and checkpoints passed) is packed into one long
+and saved in a hash set, so checking whether a state has been visited takes constant time.
+The searched states are saved in a search tree made of primitive arrays, where each state only points
+to its parent state and saves the move which leads to it. The moves to finish are put together only once,
+when the finish is found, so the memory needed does not grow with the depth of the search.
+If more than one thread is allowed (see PARALLELISM_PROPERTY in DriverAI), big levels of the search are split
+into chunks which are expanded in parallel in a ForkJoinPool of the search with that number of threads.
+Each new state is numbered by its position in the serial search and each key is kept by the state with the lowest
+number, so the search tree and the result are always the same as if the levels were expanded serially.
+Otherwise the levels are expanded serially straight into the search tree.
+(The parallel expansion has only been checked to give the same result, a speedup has not been measured yet.)
  */
 @SuppressWarnings("Duplicates")
 public class BFSAI implements DriverAI {
 
+    // Number of states of a level which are expanded together in one chunk.
+    private static final int CHUNK_SIZE = 1024;
+    // Levels with fewer states are expanded serially as splitting them would not pay off.
+    private static final int PARALLEL_THRESHOLD = 4 * CHUNK_SIZE;
+    // Number of threads which expand the levels in parallel. (All processors unless set by the property.)
+    private static final int PARALLELISM = max(1,
+            Integer.getInteger(PARALLELISM_PROPERTY, Runtime.getRuntime().availableProcessors()));
+
     // Goes through the moves generated in init() method to go through the race.
-    public int[] drive(int[] carCoordinates, int[] carVelocity, Tile[][] map) {
+    public int[] drive(int[] carCoordinates, int[] carVelocity, MapView map) {
         step++;
         while (movesToFinish.get(step) == null) {
             step++;
@@ -21,195 +49,434 @@ public class BFSAI implements DriverAI {
         return movesToFinish.get(step);
     }
 
-    // Saved copy of the map.
-    private Tile[][] map;
+    // Not used: the game calls drive() with MapView.
+    public int[] drive(int[] carCoordinates, int[] carVelocity, Tile[][] map) {
+        throw new UnsupportedOperationException("BFSAI reads the map through MapView.");
+    }
+
+    // The map.
+    private MapView map;
+    // Width and height of the map.
+    private int width, height;
+    // Flags of each tile read from the map once. (See MapView.tileFlags().)
+    private int[][] tileFlags;
     // Start coordinates.
     private int[] start;
-    // List of all Checkpoints and coordinates of each tile of each Checkpoint.
-    private ArrayList<ArrayList<int[]>> checkpoints;
-    // List of all currently saved paths.
-    private ArrayList<Path> paths;
-    // List of all visited Nodes.
-    private ArrayList<Node> visitedNodes;
-    // Is set to true if a Path which ends in a Finish node has been found.
+    // Number of Checkpoints. (The Checkpoints are indexed by the game, see MapView.checkpointAt().)
+    private int checkpointCount;
+    // Checkpoints passed in the form of a bit mask with the bits of all Checkpoints set.
+    private long allCheckpoints;
+    // All searched states. The states of each turn follow the states of the previous turn.
+    private SearchTree tree;
+    // Keys of all visited states. (See packState().)
+    private VisitedSet visitedNodes;
+    // The threads which expand the levels in parallel. (null if the levels are expanded serially)
+    private ForkJoinPool pool;
+    // Number of bits used for each part of the key of a visited state.
+    private int xBits, yBits, vxBits, vyBits, wallBits;
+    // Is set to true if a state on Finish has been found.
     // Used to break loops.
     private boolean finishFound;
-    // Is set to true if the Node in which the newly generated Path ends has been visited before.
-    // Path which ends in a Node visited before will be thrown away.
-    private boolean visited;
     // The result of the while loop. Contains moves to finish the race.
     private ArrayList<int[]> movesToFinish;
     // Used to go through 'movesToFinish' step by step in each call of the drive() method.
     private int step;
 
     // Initializes fields. Handles the while loop to find the shortest path to finish.
-    public void init(Tile[][] map) {
+    public void init(MapView map) {
         this.map = map;
+        width = map.getWidth();
+        height = map.getHeight();
+        checkpointCount = map.getCheckpointCount();
+        tileFlags = new int[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                tileFlags[x][y] = map.tileFlags(x, y);
+            }
+        }
         findStart();
-        findCheckpoints();
-        paths = new ArrayList<>();
-        paths.add(new Path(start, this));
-        visitedNodes = new ArrayList<>();
+        initStateBits();
+        tree = new SearchTree();
+        tree.add(start[0], start[1], 0, 0, 0, SearchTree.NORMAL, 0L, -1, SearchTree.NO_MOVE);
+        visitedNodes = new VisitedSet();
         finishFound = false;
-        visited = false;
 
         System.out.println("Start: " + start[0] + " " + start[1]);
-        System.out.println("Checkpoints: " + checkpoints.size());
+        System.out.println("Checkpoints: " + checkpointCount);
 
         int i = 0;
-        // Used to store the Path currently being tested.
-        Path tryPath;
-        // Goes deeper in the search tree in every iteration.
-        // In every iteration, considers each next possible move from each Path from previous iteration. (BFS AI)
-        // Throws away new Paths which lead to a Node already visited as these would only be longer.
-        while(!finishFound) {
-            // ArrayList<> 'paths' is copied to 'tempPaths' at the beginning of the while loop
-            // to allow for new Paths to be saved in 'paths'.
-            ArrayList<Path> tempPaths = paths;
-            paths = new ArrayList<>();
-            /*
-                FOR each Path from previous iteration:
-                    IF the last Node is a special tile:
-                        -> make a new Path according to the rules of the special tile.
-                    ELSE:
-                        -> go through all nine possible next moves and create new Paths for them.
-            */
-            // Whenever a new Path is created, checks whether the last Node has already been visited
-            // and the new Path is thrown away if it has.
-            // If Finish is found, all loops are broken and the moves of the Path which leads to Finish are
-            for (Path path : tempPaths) {
-                if (path.getLastNode().isWater()) {
-                    // This path will be deleted as it ends in water.
-                } else if (path.getLastNode().isIce()) {
-                    // 'nextMove' is null to represent that no move will be made this turn as the Car is on ICE.
-                    tryPath = new Path(path, null, map, this);
-                    checkForVisited(tryPath);
-                } else if (path.getLastNode().getWall() > 0) {
-                    Node node = new Node(path.getLastNode().get(0), path.getLastNode().get(1), 0, 0);
-                    node.setWall(path.getLastNode().getWall() - 1);
-                    // 'nextMove' is null to represent that no move will be made this turn as the Car is crashed.
-                    tryPath = new Path(path, node, null);
-                    checkForVisited(tryPath);
+        // The states reached in the previous turn are the states from 'levelStart' to 'levelEnd' in the tree.
+        int levelStart = 0;
+        int levelEnd = tree.size();
+        pool = PARALLELISM > 1 ? new ForkJoinPool(PARALLELISM) : null;
+        try {
+            // Goes deeper in the search tree in every iteration.
+            // In every iteration, considers each next possible move from each state from previous iteration. (BFS AI)
+            // Throws away new states which have already been visited as the paths to them would only be longer.
+            while(!finishFound) {
+                if (pool != null && levelEnd - levelStart >= PARALLEL_THRESHOLD) {
+                    expandLevel(levelStart, levelEnd);
                 } else {
-                    for (int dx = -1; dx <= 1; dx++) {
-                        for (int dy = -1; dy <= 1; dy++) {
-                            tryPath = new Path(path, new int[]{dx,dy}, map, this);
-                            checkForVisited(tryPath);
-                            if (finishFound) {
-                                movesToFinish = tryPath.getMoves();
-                                break;
-                            }
-                        }
-                        if (finishFound) {
-                            break;
-                        }
-                    }
+                    new Expansion(levelStart, levelStart, levelEnd, true).expand();
                 }
+                levelStart = levelEnd;
+                levelEnd = tree.size();
+                i++;
                 if (finishFound) {
-                    break;
+                    System.out.println("Turn " + i + ": Finish found!");
+                } else {
+                    System.out.println("Turn " + i + ": " + (levelEnd - levelStart));
                 }
             }
-            i++;
-            if (finishFound) {
-                System.out.println("Turn " + i + ": Finish found!");
-            } else {
-                System.out.println("Turn " + i + ": " + paths.size());
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+                pool = null;
             }
         }
 
         step = -1;
     }
 
-    // Checks if the last node of the new path was visited and adds the new Path to 'paths' if not.
-    // The Node only counts as visited if it has been visited with the same velocity vector,
-    // same checkpoints passed and same after-crash waiting value.
-    private void checkForVisited(Path tryPath) {
-        for (Node node : visitedNodes) {
-            if (compareNodes(tryPath.getLastNode(), node) && compareCheckpoints(tryPath, node) && tryPath.getLastNode().getWall() == node.getWall()) {
-                visited = true;
-                break;
-            }
+    // Not used: the game calls init() with MapView.
+    public void init(Tile[][] map) {
+        throw new UnsupportedOperationException("BFSAI reads the map through MapView.");
+    }
+
+    // Expands the states from 'levelStart' to 'levelEnd' in parallel and adds the new states which have not been
+    // visited yet to the tree in the same order in which the serial search would add them.
+    // If Finish is found, the moves which lead to it are saved and no state created after it is added.
+    private void expandLevel(int levelStart, int levelEnd) {
+        int chunkCount = (levelEnd - levelStart + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        Expansion[] chunks = new Expansion[chunkCount];
+
+        // Creates the new states of each chunk. The visited set is only read here.
+        for (int c = 0; c < chunkCount; c++) {
+            chunks[c] = new Expansion(levelStart, levelStart + c * CHUNK_SIZE,
+                    min(levelEnd, levelStart + (c + 1) * CHUNK_SIZE), false);
         }
-        if (!visited) {
-            Node newNode = tryPath.getLastNode();
-            newNode.setCheckpointsPassed(tryPath.getCheckpointsPassed());
-            visitedNodes.add(newNode);
-            paths.add(tryPath);
+        forEachChunk(chunkCount, c -> chunks[c].expand());
+        int finishNumber = Integer.MAX_VALUE;
+        int created = 0;
+        for (Expansion chunk : chunks) {
+            finishNumber = min(finishNumber, chunk.getFinishNumber());
+            created += chunk.getChildren().size();
+        }
+
+        // Claims the keys of the new states. Each key is kept by the state with the lowest number.
+        LevelClaims claims = new LevelClaims(created);
+        forEachChunk(chunkCount, c -> chunks[c].claim(claims));
+        // Finds the kept states of each chunk, so each chunk knows where in the tree its states go.
+        int lastNumber = finishNumber;
+        forEachChunk(chunkCount, c -> chunks[c].findKept(claims, lastNumber));
+        int[] firstIndex = new int[chunkCount];
+        int kept = 0;
+        for (int c = 0; c < chunkCount; c++) {
+            firstIndex[c] = kept;
+            kept += chunks[c].getKept();
+        }
+        int treeStart = tree.reserve(kept);
+        visitedNodes.ensureCapacity(kept);
+        forEachChunk(chunkCount, c -> chunks[c].addKept(treeStart + firstIndex[c]));
+
+        if (finishNumber != Integer.MAX_VALUE) {
+            finishFound = true;
+            ChildBuffer children = chunks[finishNumber / (9 * CHUNK_SIZE)].getChildren();
+            int finish = children.size() - 1;
+            movesToFinish = getMoves(children.getParent(finish), children.getMove(finish));
         }
-        visited = false;
     }
 
-    // Compares two nodes. Returns true if the coordinates and velocity values are the same.
-    private boolean compareNodes(Node nodeA, Node nodeB) {
-        for (int i = 0; i < 4; i++) {
-            if (nodeA.get(i) != nodeB.get(i)) {
-                return false;
-            }
+    // Calls the action for each chunk in the pool of the search.
+    // (A parallel stream started by a task of a ForkJoinPool runs in that pool instead of the common one.)
+    private void forEachChunk(int chunkCount, IntConsumer action) {
+        pool.submit(() -> IntStream.range(0, chunkCount).parallel().forEach(action)).join();
+    }
+
+    // Returns the moves which lead from the Start to the parent state and then the given move.
+    // Turns in which no move is made are represented by null.
+    private ArrayList<int[]> getMoves(int parent, byte move) {
+        ArrayList<int[]> moves = new ArrayList<>();
+        moves.add(SearchTree.decodeMove(move));
+        for (int state = parent; tree.getParent(state) != -1; state = tree.getParent(state)) {
+            moves.add(SearchTree.decodeMove(tree.getMove(state)));
         }
-        return true;
+        Collections.reverse(moves);
+        return moves;
     }
 
-    // Compares checkpoints passed by a Path and checkpoints passed saved in a Node.
-    private boolean compareCheckpoints(Path path, Node node) {
-        for (int i = 0; i < checkpoints.size(); i++) {
-            if (path.getCheckpointsPassed()[i] != node.getCheckpointsPassed()[i]) {
-                return false;
-            }
+    // Computes the number of bits needed for each part of the key of a visited state.
+    // Coordinates are within the map and so are the targets of all moves, so the velocity
+    // is between -(size - 1) and (size - 1). The after-crash waiting time is at most 3.
+    // Throws IllegalStateException if the key would not fit into a long.
+    private void initStateBits() {
+        xBits = bitsFor(width);
+        yBits = bitsFor(height);
+        vxBits = bitsFor(2 * width - 1);
+        vyBits = bitsFor(2 * height - 1);
+        wallBits = bitsFor(4);
+        int total = xBits + yBits + vxBits + vyBits + wallBits + checkpointCount;
+        if (total > 64) {
+            throw new IllegalStateException("The map is too big for BFSAI: a state needs " + total + " bits.");
         }
-        return true;
+        allCheckpoints = (1L << checkpointCount) - 1;
+    }
+
+    // Returns the number of bits needed to store numbers from 0 to (values - 1).
+    private static int bitsFor(int values) {
+        return 32 - Integer.numberOfLeadingZeros(max(values - 1, 1));
+    }
+
+    // Packs the coordinates, velocity values, after-crash waiting time and checkpoints passed into one long.
+    private long packState(int x, int y, int vx, int vy, int wall, long checkpointsPassed) {
+        long key = x;
+        key = (key << yBits) | y;
+        key = (key << vxBits) | (vx + width - 1);
+        key = (key << vyBits) | (vy + height - 1);
+        key = (key << wallBits) | wall;
+        key = (key << checkpointCount) | checkpointsPassed;
+        return key;
+    }
+
+    // Saves the state packed in the key to the tree at the given index. (Reverses packState().)
+    private void setState(int state, long key, byte type, int parent, byte move) {
+        long checkpointsPassed = key & allCheckpoints;
+        key >>>= checkpointCount;
+        int wall = (int) (key & ((1L << wallBits) - 1));
+        key >>>= wallBits;
+        int vy = (int) (key & ((1L << vyBits) - 1)) - (height - 1);
+        key >>>= vyBits;
+        int vx = (int) (key & ((1L << vxBits) - 1)) - (width - 1);
+        key >>>= vxBits;
+        int y = (int) (key & ((1L << yBits) - 1));
+        key >>>= yBits;
+        tree.set(state, (int) key, y, vx, vy, wall, type, checkpointsPassed, parent, move);
     }
 
     // Finds and saves the coordinates of the Start.
     private void findStart() {
-        for (int x = 0; x < map.length; x++) {
-            for (int y = 0; y < map[0].length; y++) {
-                if (map[x][y] == Tile.START) {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (map.tileAt(x, y) == Tile.START) {
                     start = new int[]{x,y};
                 }
             }
         }
     }
 
-    // Finds and saves coordinates of each tile of each Checkpoint.
-    // Each Checkpoint is saved as 2D int array, where the first number selects a tile of the Checkpoint
-    // and the second number selects a coordinate of the tile.
-    private void findCheckpoints() {
-        checkpoints = new ArrayList<>();
-        boolean tileAssigned = false;
-        for (int x = 0; x < map.length; x++) {
-            for (int y = 0; y < map[0].length; y++) {
-                if (map[x][y] == Tile.CHECKPOINT) {
-                    for (ArrayList<int[]> checkpoint : checkpoints) {
-                        for (int[] tile : checkpoint) {
-                            if ((tile[0] - x == 0 || abs(tile[0] - x) == 1) && (tile[1] - y == 0 || abs(tile[1] - y) == 1)) {
-                                tileAssigned = true;
-                                checkpoint.add(new int[]{x,y});
-                            }
-                            if (tileAssigned) {
-                                break;
-                            }
-                        }
-                        if (tileAssigned) {
-                            break;
+    // Expansion of one chunk of a level: the states from 'from' to 'to'.
+    // Each created state is numbered by its position in the serial search of the level:
+    // 9 * (index of the parent state in the level) + (the encoded move).
+    // The created states which have not been visited in the previous levels are saved in a buffer,
+    // or straight to the tree if the whole level is expanded serially.
+    // The expansion of the chunk stops when Finish is found.
+    private class Expansion {
+
+        // The first state of the level and the states of the chunk.
+        private final int levelStart, from, to;
+        // Add the new states to the tree and their keys to the visited set right away. (Only if the whole level
+        // is expanded serially.)
+        private final boolean serial;
+        // The created states which have not been visited in the previous levels ordered by their numbers.
+        // (null if the level is expanded serially)
+        private final ChildBuffer children;
+        // The number of the state on Finish or Integer.MAX_VALUE if Finish has not been found.
+        private int finishNumber;
+        // Indexes of the saved states which are kept in the tree.
+        private int[] kept;
+        // Number of the indexes in 'kept'.
+        private int keptCount;
+        // The state created by the last call of createNewState() or waitAfterCrash().
+        private int newX, newY, newVx, newVy, newWall;
+        private byte newType;
+        private long newCheckpoints;
+
+        Expansion(int levelStart, int from, int to, boolean serial) {
+            this.levelStart = levelStart;
+            this.from = from;
+            this.to = to;
+            this.serial = serial;
+            children = serial ? null : new ChildBuffer();
+            finishNumber = Integer.MAX_VALUE;
+        }
+
+        /*
+            FOR each state of the chunk:
+                IF the state is on a special tile:
+                    -> make a new state according to the rules of the special tile.
+                ELSE:
+                    -> go through all nine possible next moves and create new states for them.
+        */
+        void expand() {
+            if (serial) {
+                visitedNodes.ensureCapacity(9 * (to - from));
+            }
+            for (int state = from; state < to && finishNumber == Integer.MAX_VALUE; state++) {
+                int number = 9 * (state - levelStart);
+                if (tree.getType(state) == SearchTree.WATER) {
+                    // No state will follow this one as it ends in water.
+                } else if (tree.getType(state) == SearchTree.ICE) {
+                    // No move will be made this turn as the Car is on ICE.
+                    createNewState(state, 0, 0);
+                    addChild(state, SearchTree.NO_MOVE, number);
+                } else if (tree.getWall(state) > 0) {
+                    // No move will be made this turn as the Car is crashed.
+                    waitAfterCrash(state);
+                    addChild(state, SearchTree.NO_MOVE, number);
+                } else {
+                    for (int dx = -1; dx <= 1 && finishNumber == Integer.MAX_VALUE; dx++) {
+                        for (int dy = -1; dy <= 1 && finishNumber == Integer.MAX_VALUE; dy++) {
+                            byte move = SearchTree.encodeMove(dx, dy);
+                            createNewState(state, dx, dy);
+                            addChild(state, move, number + move);
                         }
                     }
-                    if (!tileAssigned) {
-                        ArrayList<int[]> newCheckpoint = new ArrayList<>();
-                        newCheckpoint.add(new int[]{x,y});
-                        checkpoints.add(newCheckpoint);
-                    }
-                    tileAssigned = false;
                 }
             }
         }
-    }
 
-    void finishFound() {
-        finishFound = true;
-    }
+        // Saves the new state unless it has been visited in the previous levels.
+        // The state only counts as visited if it has been visited with the same velocity vector,
+        // same checkpoints passed and same after-crash waiting value.
+        // The state on Finish is always saved, so the moves which lead to it can be found.
+        // (If the level is expanded serially, the moves to Finish are saved right away.)
+        private void addChild(int parent, byte move, int number) {
+            long key = packState(newX, newY, newVx, newVy, newWall, newCheckpoints);
+            if (newType == SearchTree.FINISH) {
+                finishNumber = number;
+            }
+            if (serial) {
+                if (visitedNodes.add(key)) {
+                    tree.add(newX, newY, newVx, newVy, newWall, newType, newCheckpoints, parent, move);
+                }
+                if (newType == SearchTree.FINISH) {
+                    finishFound = true;
+                    movesToFinish = getMoves(parent, move);
+                }
+            } else if (newType == SearchTree.FINISH || !visitedNodes.contains(key)) {
+                children.add(key, newType, parent, move, number);
+            }
+        }
+
+        // Claims the keys of the saved states for the states of this level.
+        void claim(LevelClaims claims) {
+            for (int i = 0; i < children.size(); i++) {
+                claims.claim(children.getKey(i), children.getNumber(i));
+            }
+        }
+
+        // Finds the saved states which are kept. (They have the lowest number of all states with the same key
+        // and they were not created after the state on Finish.)
+        void findKept(LevelClaims claims, int lastNumber) {
+            kept = new int[children.size()];
+            keptCount = 0;
+            for (int i = 0; i < children.size(); i++) {
+                int number = children.getNumber(i);
+                if (number <= lastNumber && claims.getClaim(children.getKey(i)) == number) {
+                    kept[keptCount++] = i;
+                }
+            }
+        }
+
+        // Saves the kept states to the tree starting at the given index and adds their keys to the visited set.
+        void addKept(int index) {
+            for (int k = 0; k < keptCount; k++) {
+                int child = kept[k];
+                visitedNodes.add(children.getKey(child));
+                setState(index++, children.getKey(child), children.getType(child), children.getParent(child), children.getMove(child));
+            }
+        }
+
+        int getFinishNumber() {
+            return finishNumber;
+        }
+
+        int getKept() {
+            return keptCount;
+        }
+
+        ChildBuffer getChildren() {
+            return children;
+        }
+
+        // Creates the state in which the Car stays after the crash for one more turn.
+        private void waitAfterCrash(int state) {
+            newX = tree.getX(state);
+            newY = tree.getY(state);
+            newVx = 0;
+            newVy = 0;
+            newWall = tree.getWall(state) - 1;
+            newType = SearchTree.NORMAL;
+            newCheckpoints = tree.getCheckpoints(state);
+        }
+
+        // Checks the path which would be taken by the car going from the state with the given acceleration.
+        // Checks for special tiles in the path using the checkForSpecialTiles() method
+        // and creates "special" state if a special tile is encountered.
+        // If no special tile is encountered, creates "normal" state at the end.
+        // (The path of the car is taken from the SweptPaths table used by the game itself.)
+        private void createNewState(int state, int ax, int ay) {
+            int initX = tree.getX(state);
+            int initY = tree.getY(state);
+            int vx = tree.getVx(state) + ax;
+            int vy = tree.getVy(state) + ay;
+            newCheckpoints = tree.getCheckpoints(state);
+            int[] offsets = SweptPaths.get(vx, vy);
+
+            int lastX = initX;
+            int lastY = initY;
+
+            for (int i = 0; i < offsets.length; i += 2) {
+                int x = initX + offsets[i];
+                int y = initY + offsets[i + 1];
+                if (checkForSpecialTiles(x, y, lastX, lastY, vx, vy, i == offsets.length - 2)) {
+                    return;
+                }
+                lastX = x;
+                lastY = y;
+            }
+
+            setNewState(initX + vx, initY + vy, vx, vy, 0, SearchTree.NORMAL);
+        }
+
+        // Checks for special tile. Creates "special" state and returns true if a special tile is encountered.
+        // Returns false otherwise.
+        // (Tiles outside the map have the WALL flag.)
+        private boolean checkForSpecialTiles(int x, int y, int lastX, int lastY, int vx, int vy, boolean lastTile) {
+            int flags = x < 0 || y < 0 || x >= width || y >= height ? MapView.WALL : tileFlags[x][y];
+            if ((flags & MapView.WALL) != 0) {
+                setNewState(lastX, lastY, 0, 0, 3, SearchTree.NORMAL);
+                return true;
+            } else if ((flags & MapView.WATER) != 0) {
+                setNewState(x, y, 0, 0, 0, SearchTree.WATER);
+                return true;
+            } else if ((flags & MapView.SAND) != 0) {
+                setNewState(x, y, 0, 0, 0, SearchTree.NORMAL);
+                return true;
+            } else if ((flags & MapView.FINISH) != 0) {
+                if (newCheckpoints == allCheckpoints) {
+                    setNewState(x, y, 0, 0, 0, SearchTree.FINISH);
+                    return true;
+                }
+            } else if (lastTile && (flags & MapView.ICE) != 0) {
+                setNewState(x, y, vx, vy, 0, SearchTree.ICE);
+                return true;
+            } else if ((flags & MapView.CHECKPOINT) != 0) {
+                newCheckpoints |= 1L << map.checkpointAt(x, y);
+            }
+            return false;
+        }
+
+        // Saves the given values as the new state. (The checkpoints passed are already saved.)
+        private void setNewState(int x, int y, int vx, int vy, int wall, byte type) {
+            newX = x;
+            newY = y;
+            newVx = vx;
+            newVy = vy;
+            newWall = wall;
+            newType = type;
+        }
 
-    ArrayList<ArrayList<int[]>> getCheckpoints() {
-        return checkpoints;
     }
 
 }
@@ -217,60 +484,135 @@ public class BFSAI implements DriverAI {
 
 
 
-// Contains X and Y coordinates of a tile and VX and VY coordinates of current velocity vector.
-// Contains additional fields used to store information about special tiles.
-class Node {
+// Search tree of all searched states saved in primitive arrays.
+// Each state saves its coordinates, velocity values, after-crash waiting time, type (normal, ICE, WATER or FINISH),
+// checkpoints passed, the index of its parent state and the move which leads from the parent state to it.
+class SearchTree {
+
+    // Types of states.
+    static final byte NORMAL = 0, ICE = 1, WATER = 2, FINISH = 3;
+    // Saved as the move of states which are reached without making a move. (On ICE or after crash.)
+    static final byte NO_MOVE = -1;
+
+    // Values of all states. The values of one state have the same index in all arrays.
+    private int[] x, y, vx, vy, parent;
+    private byte[] wall, type, move;
+    private long[] checkpoints;
+    // Number of saved states.
+    private int size;
+
+    SearchTree() {
+        x = new int[1024];
+        y = new int[1024];
+        vx = new int[1024];
+        vy = new int[1024];
+        parent = new int[1024];
+        wall = new byte[1024];
+        type = new byte[1024];
+        move = new byte[1024];
+        checkpoints = new long[1024];
+        size = 0;
+    }
+
+    // Adds new state to the tree and returns its index.
+    int add(int x, int y, int vx, int vy, int wall, byte type, long checkpoints, int parent, byte move) {
+        int state = reserve(1);
+        set(state, x, y, vx, vy, wall, type, checkpoints, parent, move);
+        return state;
+    }
 
-    // Contains the coordinates and velocity values.
-    private int[] node;
-    // Stores information about the Node being ICE or WATER.
-    private boolean ice, water;
-    // Stores information about the after-crash waiting time.
-    private int wall;
-    // Used only for saving visited Nodes, not for Nodes in Paths. (Paths have their checkpointsPassed[] lists.)
-    private boolean[] checkpointsPassed;
+    // Reserves the given number of states at the end of the tree and returns the index of the first one.
+    // The reserved states are then saved by the set() method. (Different states can be saved by different threads.)
+    int reserve(int count) {
+        if (size + count > x.length) {
+            grow(size + count);
+        }
+        int first = size;
+        size += count;
+        return first;
+    }
 
-    Node(int x, int y, int vx, int vy) {
-        node = new int[]{x,y,vx,vy};
-        ice = false;
-        water = false;
-        wall = 0;
+    // Saves the state at the given index.
+    void set(int state, int x, int y, int vx, int vy, int wall, byte type, long checkpoints, int parent, byte move) {
+        this.x[state] = x;
+        this.y[state] = y;
+        this.vx[state] = vx;
+        this.vy[state] = vy;
+        this.wall[state] = (byte) wall;
+        this.type[state] = type;
+        this.checkpoints[state] = checkpoints;
+        this.parent[state] = parent;
+        this.move[state] = move;
     }
 
-    void setCheckpointsPassed(boolean[] checkpointsPassed) {
-        this.checkpointsPassed = checkpointsPassed;
+    // Doubles the capacity of all arrays until it is at least the given number of states.
+    private void grow(int minCapacity) {
+        int capacity = x.length;
+        while (capacity < minCapacity) {
+            capacity *= 2;
+        }
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        vx = Arrays.copyOf(vx, capacity);
+        vy = Arrays.copyOf(vy, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        wall = Arrays.copyOf(wall, capacity);
+        type = Arrays.copyOf(type, capacity);
+        move = Arrays.copyOf(move, capacity);
+        checkpoints = Arrays.copyOf(checkpoints, capacity);
     }
 
-    boolean[] getCheckpointsPassed() {
-        return checkpointsPassed;
+    // Encodes the move (acceleration from -1 to 1 in both coordinates) into one byte.
+    static byte encodeMove(int ax, int ay) {
+        return (byte) ((ax + 1) * 3 + ay + 1);
     }
 
-    int get(int i) {
-        return node[i];
+    // Decodes the move saved by encodeMove(). Returns null for NO_MOVE.
+    static int[] decodeMove(byte move) {
+        if (move == NO_MOVE) {
+            return null;
+        }
+        return new int[]{move / 3 - 1, move % 3 - 1};
     }
 
-    void setIceTrue() {
-        ice = true;
+    int size() {
+        return size;
     }
 
-    void setWaterTrue() {
-        water = true;
+    int getX(int state) {
+        return x[state];
     }
 
-    void setWall(int i) {
-        wall = i;
+    int getY(int state) {
+        return y[state];
     }
 
-    boolean isIce() {
-        return ice;
+    int getVx(int state) {
+        return vx[state];
     }
 
-    boolean isWater() {
-        return water;
+    int getVy(int state) {
+        return vy[state];
     }
 
-    int getWall() {
-        return wall;
+    int getWall(int state) {
+        return wall[state];
+    }
+
+    byte getType(int state) {
+        return type[state];
+    }
+
+    long getCheckpoints(int state) {
+        return checkpoints[state];
+    }
+
+    int getParent(int state) {
+        return parent[state];
+    }
+
+    byte getMove(int state) {
+        return move[state];
     }
 
 }
@@ -278,253 +620,222 @@ class Node {
 
 
 
-// Contains list of Nodes (forming the path) and list of moves to go through the path.
-class Path {
+// Set of the keys of visited states. (Open addressing with linear probing.)
+// Keys are added with compare-and-set, so more threads can add keys at the same time.
+// The set only grows in ensureCapacity(), which must not be called while keys are added.
+// Zero marks an empty slot, so the key zero is saved separately.
+class VisitedSet {
 
-    // List of Nodes -> the path.
-    private ArrayList<Node> path;
-    // List of moves to be taken to go through this path.
-    private ArrayList<int[]> moves;
-    // Used to store information about which checkpoints has this Path crossed.
-    private boolean[] checkpointsPassed;
+    // The slots of the set. The length is always a power of two.
+    private AtomicLongArray keys;
+    // Number of keys saved in the slots.
+    private AtomicInteger size;
+    // Stores information about the key zero being in the set.
+    private AtomicBoolean containsZero;
 
-    // Constructor for the first Path instance with only one Node: the Start.
-    Path(int[] start, BFSAI ai) {
-        path = new ArrayList<>();
-        moves = new ArrayList<>();
-        path.add(new Node(start[0], start[1], 0, 0));
-        checkpointsPassed = new boolean[ai.getCheckpoints().size()];
-        for (boolean b : checkpointsPassed) {
-            b = false;
-        }
+    VisitedSet() {
+        keys = new AtomicLongArray(1024);
+        size = new AtomicInteger();
+        containsZero = new AtomicBoolean();
     }
 
-    // Constructor for adding custom Node and Move without calling createNewNode().
-    // Is used for handling after-crash waiting.
-    Path(Path parentPath, Node nextNode, int[] nextMove) {
-        path = new ArrayList<>();
-        moves = new ArrayList<>();
-        checkpointsPassed = new boolean[parentPath.getCheckpointsPassed().length];
-        for (Node node : parentPath.get()) {
-            path.add(node);
-        }
-        for (int[] move : parentPath.getMoves()) {
-            moves.add(move);
+    // Returns true if the key is in the set.
+    boolean contains(long key) {
+        if (key == 0) {
+            return containsZero.get();
         }
-        for (int i = 0; i < checkpointsPassed.length; i++) {
-            checkpointsPassed[i] = parentPath.getCheckpointsPassed()[i];
+        int mask = keys.length() - 1;
+        for (int i = hash(key) & mask; keys.get(i) != 0; i = (i + 1) & mask) {
+            if (keys.get(i) == key) {
+                return true;
+            }
         }
-        path.add(nextNode);
-        moves.add(nextMove);
+        return false;
     }
 
-    // Constructs new Path with one more Node than the previous Path given to it as parameter.
-    // The new Node is created according to the nextMove given to it as parameter.
-    Path(Path parentPath, int[] nextMove, Tile[][] map, BFSAI ai) {
-        path = new ArrayList<>();
-        moves = new ArrayList<>();
-        checkpointsPassed = new boolean[parentPath.getCheckpointsPassed().length];
-        for (Node node : parentPath.get()) {
-            path.add(node);
+    // Adds the key to the set. Returns false if the key was already in the set.
+    // There must be a free slot for the key. (See ensureCapacity().)
+    boolean add(long key) {
+        if (key == 0) {
+            return containsZero.compareAndSet(false, true);
         }
-        for (int[] move : parentPath.getMoves()) {
-            moves.add(move);
+        int mask = keys.length() - 1;
+        int i = hash(key) & mask;
+        while (true) {
+            if (keys.get(i) == 0 && keys.compareAndSet(i, 0, key)) {
+                size.incrementAndGet();
+                return true;
+            }
+            if (keys.get(i) == key) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    // Makes sure the set stays at most half full even if the given number of keys is added.
+    void ensureCapacity(int count) {
+        int capacity = keys.length();
+        while (2 * ((long) size.get() + count) > capacity) {
+            capacity *= 2;
         }
-        for (int i = 0; i < checkpointsPassed.length; i++) {
-            checkpointsPassed[i] = parentPath.getCheckpointsPassed()[i];
+        if (capacity == keys.length()) {
+            return;
         }
-        if (nextMove == null) {
-            moves.add(null);
-            nextMove = new int[]{0,0};
-        } else {
-            moves.add(nextMove);
+        AtomicLongArray oldKeys = keys;
+        keys = new AtomicLongArray(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length(); j++) {
+            long key = oldKeys.get(j);
+            if (key != 0) {
+                int i = hash(key) & mask;
+                while (keys.get(i) != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys.set(i, key);
+            }
         }
-        path.add(createNewNode(nextMove, map, ai));
     }
 
-    // Checks the path which would be taken by the car going from the last Node to the new one.
-    // Checks for special tiles in the path using the checkForSpecialTiles() method
-    // and return new "special" Node if a special tile is encountered.
-    // If no special tile is encountered, creates "normal" Node at the end.
-    // (The code for checking the path of the car was taken from the main.Game.goThroughPath() method from the game.)
-    @SuppressWarnings("Duplicates")
-    private Node createNewNode(int[] nextMove, Tile[][] map, BFSAI ai) {
-        Node last = path.get(path.size() - 1);
+    // Spreads the bits of the key, so keys which differ only in a few bits end up in different slots.
+    static int hash(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
 
-        int initX = last.get(0);
-        int initY = last.get(1);
-        int targetX = initX + last.get(2) + nextMove[0];
-        int targetY = initY + last.get(3) + nextMove[1];
-        int dirX = Integer.compare(targetX, initX);
-        int dirY = Integer.compare(targetY, initY);
+}
 
-        int a = -(targetY - initY);
-        int b = targetX - initX;
-        int c = - a * initX - b * initY;
-        double d = sqrt(a * a + b * b);
-        boolean firstTile = true;
 
-        int lastX = initX;
-        int lastY = initY;
-        Node tryNode;
 
-        if (initX == targetX) {
-            lastX = initX;
-            for (int y = initY + dirY; y - dirY != targetY; y += dirY) {
-                if (y == targetY) {
-                    tryNode = checkForSpecialTiles(targetX, targetY, lastX, lastY, map, ai, true, nextMove);
-                } else {
-                    tryNode = checkForSpecialTiles(initX, y, lastX, lastY, map, ai, false, nextMove);
-                }
-                if (tryNode != null) {
-                    return tryNode;
-                }
-                lastY = y;
-            }
-        } else if (initY == targetY) {
-            lastY = initY;
-            for (int x = initX + dirX; x - dirX != targetX; x += dirX) {
-                if (x == targetX) {
-                    tryNode = checkForSpecialTiles(targetX, targetY, lastX, lastY, map, ai, true, nextMove);
-                } else {
-                    tryNode = checkForSpecialTiles(x, initY, lastX, lastY, map, ai, false, nextMove);
-                }
-                if (tryNode != null) {
-                    return tryNode;
-                }
-                lastX = x;
-            }
-        } else if (abs(initX - targetX) == abs(initY - targetY)) {
-            int x, y;
-            for (int i = 1; i <= abs(initX - targetX); i++) {
-                x = initX + dirX * i;
-                y = initY + dirY * i;
-                if (x == targetX && y == targetY) {
-                    tryNode = checkForSpecialTiles(targetX, targetY, lastX, lastY, map, ai, true, nextMove);
-                } else {
-                    tryNode = checkForSpecialTiles(x, y, lastX, lastY, map, ai, false, nextMove);
-                }
-                if (tryNode != null) {
-                    return tryNode;
-                }
-                lastX = x;
-                lastY = y;
-            }
-        } else if (abs(initX - targetX) > abs(initY - targetY)) {
-            for (int x = initX; x - dirX != targetX; x += dirX) {
-                for (int y = initY; y - dirY != targetY; y += dirY) {
-                    if (firstTile) {
-                        firstTile = false;
-                        continue;
-                    }
-                    if (abs(a * x + b * y + c) / d <= 0.5) {
-                        if (x == targetX && y == targetY) {
-                            tryNode = checkForSpecialTiles(targetX, targetY, lastX, lastY, map, ai, true, nextMove);
-                        } else {
-                            tryNode = checkForSpecialTiles(x, y, lastX, lastY, map, ai, false, nextMove);
-                        }
-                        if (tryNode != null) {
-                            return tryNode;
-                        }
-                        lastX = x;
-                        lastY = y;
-                    }
-                }
-            }
-        } else {
-            for (int y = initY; y - dirY != targetY; y += dirY) {
-                for (int x = initX; x - dirX != targetX; x += dirX) {
-                    if (firstTile) {
-                        firstTile = false;
-                        continue;
-                    }
-                    if (abs(a * x + b * y + c) / d <= 0.5) {
-                        if (x == targetX && y == targetY) {
-                            tryNode = checkForSpecialTiles(targetX, targetY, lastX, lastY, map, ai, true, nextMove);
-                        } else {
-                            tryNode = checkForSpecialTiles(x, y, lastX, lastY, map, ai, false, nextMove);
-                        }
-                        if (tryNode != null) {
-                            return tryNode;
-                        }
-                        lastX = x;
-                        lastY = y;
-                    }
-                }
-            }
+
+// The claims of the keys of the states created in one level expanded in parallel.
+// Each key is claimed by all states which have it and it keeps the lowest number of them,
+// so the state which would be created first by the serial search is known no matter the order of the claims.
+// (Open addressing with linear probing: the key at even and its claim at odd indexes, so they are read together.)
+// The claims are made with compare-and-set, so more threads can claim keys at the same time.
+class LevelClaims {
+
+    // The slots of the table. Zero marks an empty slot and the claims are saved increased by one,
+    // so the key zero and the number zero can be saved too.
+    private final AtomicLongArray slots;
+    // The claim of the key zero increased by one. (Zero if the key zero has not been claimed.)
+    private final AtomicLong zeroClaim;
+
+    // Creates a table for the given number of claims at most.
+    LevelClaims(int count) {
+        int capacity = 1024;
+        while (capacity < 2L * count) {
+            capacity *= 2;
         }
+        slots = new AtomicLongArray(2 * capacity);
+        zeroClaim = new AtomicLong();
+    }
 
-        return new Node(targetX, targetY, last.get(2) + nextMove[0], last.get(3) + nextMove[1]);
+    // Claims the key by the state with the given number unless a state with a lower number has claimed it.
+    void claim(long key, int number) {
+        if (key == 0) {
+            lower(zeroClaim, number + 1L);
+            return;
+        }
+        int mask = slots.length() / 2 - 1;
+        int i = VisitedSet.hash(key) & mask;
+        while (!(slots.get(2 * i) == 0 && slots.compareAndSet(2 * i, 0, key)) && slots.get(2 * i) != key) {
+            i = (i + 1) & mask;
+        }
+        long claim = number + 1L;
+        long current = slots.get(2 * i + 1);
+        while ((current == 0 || claim < current) && !slots.compareAndSet(2 * i + 1, current, claim)) {
+            current = slots.get(2 * i + 1);
+        }
     }
 
-    // Checks for special tile. Returns "special" Node if a special tile is encountered. Returns null otherwise.
-    @SuppressWarnings("Duplicates")
-    private Node checkForSpecialTiles(int x, int y, int lastX, int lastY, Tile[][] map, BFSAI ai, boolean lastTile, int[] nextMove) {
-        try {
-            if (map[x][y] == Tile.GRASS) {}
-        }  catch (ArrayIndexOutOfBoundsException e) {
-            Node node = new Node(lastX, lastY, 0, 0);
-            node.setWall(3);
-            return node;
-        }
-        if (map[x][y] == Tile.WALL) {
-            Node node = new Node(lastX, lastY, 0, 0);
-            node.setWall(3);
-            return node;
-        } else if (map[x][y] == Tile.WATER) {
-            Node node = new Node(x, y, 0, 0);
-            node.setWaterTrue();
-            return node;
-        } else if (map[x][y] == Tile.SAND) {
-            return new Node(x, y, 0, 0);
-        } else if (map[x][y] == Tile.FINISH) {
-            boolean passedAllCheckpoints = true;
-            for (boolean b : checkpointsPassed) {
-                if (!b) {
-                    passedAllCheckpoints = false;
-                    break;
-                }
-            }
-            if (passedAllCheckpoints) {
-                ai.finishFound();
-                return new Node(x, y, 0, 0);
-            }
-        } else if (lastTile && map[x][y] == Tile.ICE) {
-            Node node = new Node(x, y, path.get(path.size() - 1).get(2) + nextMove[0], path.get(path.size() - 1).get(3) + nextMove[1]);
-            node.setIceTrue();
-            return node;
-        } else if (map[x][y] == Tile.CHECKPOINT) {
-            boolean checkpointFound = false;
-            for (int i = 0; i < ai.getCheckpoints().size(); i++) {
-                for (int[] tile : ai.getCheckpoints().get(i)) {
-                    if (x == tile[0] && y == tile[1]) {
-                        checkpointsPassed[i] = true;
-                        checkpointFound = true;
-                        break;
-                    }
-                }
-                if (checkpointFound) {
-                    break;
-                }
+    // Lowers the claim of the key zero.
+    private static void lower(AtomicLong zeroClaim, long claim) {
+        long current = zeroClaim.get();
+        while ((current == 0 || claim < current) && !zeroClaim.compareAndSet(current, claim)) {
+            current = zeroClaim.get();
+        }
+    }
+
+    // Returns the number of the state which has claimed the key or -1 if the key has not been claimed.
+    int getClaim(long key) {
+        if (key == 0) {
+            return (int) zeroClaim.get() - 1;
+        }
+        int mask = slots.length() / 2 - 1;
+        for (int i = VisitedSet.hash(key) & mask; slots.get(2 * i) != 0; i = (i + 1) & mask) {
+            if (slots.get(2 * i) == key) {
+                return (int) slots.get(2 * i + 1) - 1;
             }
         }
-        return null;
+        return -1;
     }
 
-    ArrayList<Node> get() {
-        return path;
+}
+
+
+
+
+// The states created by the expansion of one chunk of a level saved in primitive arrays.
+// Each state saves its key, type, the index of its parent state, the move which leads to it and its number.
+class ChildBuffer {
+
+    // Values of all states. The values of one state have the same index in all arrays.
+    private long[] keys;
+    private int[] parents, numbers;
+    private byte[] types, moves;
+    // Number of saved states.
+    private int size;
+
+    ChildBuffer() {
+        keys = new long[256];
+        parents = new int[256];
+        numbers = new int[256];
+        types = new byte[256];
+        moves = new byte[256];
+        size = 0;
     }
 
-    ArrayList<int[]> getMoves() {
-        return moves;
+    // Adds new state to the buffer.
+    void add(long key, byte type, int parent, byte move, int number) {
+        if (size == keys.length) {
+            int capacity = 2 * size;
+            keys = Arrays.copyOf(keys, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            numbers = Arrays.copyOf(numbers, capacity);
+            types = Arrays.copyOf(types, capacity);
+            moves = Arrays.copyOf(moves, capacity);
+        }
+        keys[size] = key;
+        types[size] = type;
+        parents[size] = parent;
+        moves[size] = move;
+        numbers[size] = number;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long getKey(int child) {
+        return keys[child];
     }
 
-    Node getLastNode() {
-        return path.get(path.size() - 1);
+    byte getType(int child) {
+        return types[child];
     }
 
-    boolean[] getCheckpointsPassed() {
-        return checkpointsPassed;
+    int getParent(int child) {
+        return parents[child];
     }
 
-}
\ No newline at end of file
+    byte getMove(int child) {
+        return moves[child];
+    }
+
+    int getNumber(int child) {
+        return numbers[child];
+    }
+
+}
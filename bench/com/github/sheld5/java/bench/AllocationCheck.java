@@ -0,0 +1,265 @@
+package bench;
+
+import model.CarState;
+import model.DriverAI;
+import model.MapData;
+import model.MapView;
+import model.RaceEngine;
+import model.Tile;
+import util.MapFormatException;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Checks that the turn loop of the RaceEngine does not allocate any memory after it has been warmed up.
+ * Run by the "bench" Ant target. Exits with the status 1 if the check fails.
+ *
+ * The coordinate and velocity arrays which are created for the AI on each call of nextAiMove()
+ * (the DriverAI interface requires a fresh copy for each call) are excluded from the check.
+ * Allocations made by the AI itself are excluded as well.
+ */
+public class AllocationCheck {
+
+    /**
+     * The number of turns driven to warm up the engine before the allocations are measured.
+     */
+    private static final int WARM_UP_TURNS = 2_000_000;
+    /**
+     * The number of turns during which are the allocations measured.
+     */
+    private static final int MEASURED_TURNS = 2_000_000;
+    /**
+     * The number of bytes which can be allocated by the measurement itself.
+     */
+    private static final long TOLERANCE = 1024;
+    /**
+     * The test map. (W - WALL, R - ROAD, S - START, A - SAND, I - ICE, F - FINISH)
+     * The finish cannot be reached, so the car drives until the check is over.
+     */
+    private static final String[] MAP = {
+            "WWWWWWWWWWWW",
+            "WSRRARRRIIRW",
+            "WRRRRRRARRRW",
+            "WRARRIIRRRAW",
+            "WRRRRRRRRRRW",
+            "WWWWWWWWWWWW",
+            "WFWWWWWWWWWW",
+            "WWWWWWWWWWWW"
+    };
+    /**
+     * Keeps the excluded arrays reachable, so they are not optimized away when the excluded allocations are measured.
+     */
+    private static int[] sink;
+    /**
+     * The state of the pseudo-random generator of the accelerations.
+     */
+    private static int seed = 1;
+
+    /**
+     * Runs the check.
+     * @param args not used.
+     * @throws MapFormatException never, the test map is valid.
+     */
+    public static void main(String[] args) throws MapFormatException {
+        MapData map = new MapData(parseMap());
+        boolean ok = checkDrive(map);
+        ok &= checkNextAiMove(map);
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Checks that driving the car (including crashes, sand and ice) does not allocate.
+     * @param map the test map.
+     * @return true if the check passed.
+     */
+    private static boolean checkDrive(MapData map) {
+        RaceEngine engine = newEngine(map, new FixedDriver(new int[]{0,0}));
+        driveTurns(engine, WARM_UP_TURNS);
+        long before = allocatedBytes();
+        driveTurns(engine, MEASURED_TURNS);
+        long bytes = allocatedBytes() - before;
+        if (engine.getActiveCar().isFinished() || engine.getActiveCar().isSunk()) {
+            System.out.println("FAILED: the car left the race during the check.");
+            return false;
+        }
+        System.out.println("RaceEngine.drive(): " + bytes + " bytes allocated in " + MEASURED_TURNS + " turns ("
+                + engine.getActiveCar().getCrashes() + " crashes in total)");
+        if (bytes > TOLERANCE) {
+            System.out.println("FAILED: the turn loop allocates memory.");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks that nextAiMove() allocates nothing but the coordinate and velocity arrays given to the AI,
+     * both for valid and for invalid moves.
+     * @param map the test map.
+     * @return true if the check passed.
+     */
+    private static boolean checkNextAiMove(MapData map) {
+        boolean ok = true;
+        int[][] moves = {{1,-1}, {2,0}};
+        for (int[] move : moves) {
+            RaceEngine engine = newEngine(map, new FixedDriver(move));
+            engine.nextCar();
+            callNextAiMove(engine, WARM_UP_TURNS);
+            excludedArrays(engine.getActiveCar(), WARM_UP_TURNS);
+            long before = allocatedBytes();
+            callNextAiMove(engine, MEASURED_TURNS);
+            long bytes = allocatedBytes() - before;
+            before = allocatedBytes();
+            excludedArrays(engine.getActiveCar(), MEASURED_TURNS);
+            long excluded = allocatedBytes() - before;
+            System.out.println("RaceEngine.nextAiMove() with the move {" + move[0] + "," + move[1] + "}: " + bytes
+                    + " bytes allocated in " + MEASURED_TURNS + " calls (" + excluded + " bytes excluded)");
+            if (bytes - excluded > TOLERANCE) {
+                System.out.println("FAILED: nextAiMove() allocates more than the arrays given to the AI.");
+                ok = false;
+            }
+        }
+        return ok;
+    }
+
+    /**
+     * Drives the car for the given number of turns with pseudo-random accelerations,
+     * the same way as RaceEngine.runRace() does.
+     * @param engine the engine of the race.
+     * @param turns the number of turns.
+     * @see RaceEngine#runRace()
+     */
+    private static void driveTurns(RaceEngine engine, int turns) {
+        for (int i = 0; i < turns; i++) {
+            engine.nextCar();
+            if (engine.getActiveCar().isCrashed()) {
+                engine.countdown();
+            } else if (engine.activeCarSliding()) {
+                engine.drive(0, 0);
+            } else {
+                engine.drive(nextAcceleration(), nextAcceleration());
+            }
+        }
+    }
+
+    /**
+     * Calls nextAiMove() the given number of times.
+     * @param engine the engine of the race.
+     * @param calls the number of calls.
+     */
+    private static void callNextAiMove(RaceEngine engine, int calls) {
+        for (int i = 0; i < calls; i++) {
+            sink = engine.nextAiMove();
+        }
+    }
+
+    /**
+     * Creates the arrays which nextAiMove() gives to the AI the given number of times.
+     * @param car the car on turn.
+     * @param calls the number of calls of nextAiMove().
+     */
+    private static void excludedArrays(CarState car, int calls) {
+        for (int i = 0; i < calls; i++) {
+            sink = car.getCoordinates();
+            sink = car.getVelocity();
+        }
+    }
+
+    /**
+     * Returns the next pseudo-random acceleration.
+     * @return -1, 0 or 1.
+     */
+    private static int nextAcceleration() {
+        seed = seed * 1103515245 + 12345;
+        return ((seed >>> 16) % 3) - 1;
+    }
+
+    /**
+     * Returns a new engine of a race of a single car on the given map.
+     * @param map the test map.
+     * @param driver the AI driving the car.
+     * @return the engine.
+     */
+    private static RaceEngine newEngine(MapData map, DriverAI driver) {
+        return new RaceEngine(map, new CarState[]{new CarState("Bench", "FixedDriver", driver)});
+    }
+
+    /**
+     * Returns the number of bytes allocated by the current thread so far.
+     * @return the number of bytes.
+     */
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Returns the tiles of the test map.
+     * @return the tiles. (The first index selects the row, the second one the column.)
+     */
+    private static Tile[][] parseMap() {
+        Tile[][] tiles = new Tile[MAP.length][MAP[0].length()];
+        for (int y = 0; y < MAP.length; y++) {
+            for (int x = 0; x < MAP[y].length(); x++) {
+                switch (MAP[y].charAt(x)) {
+                    case 'S': tiles[y][x] = Tile.START; break;
+                    case 'F': tiles[y][x] = Tile.FINISH; break;
+                    case 'R': tiles[y][x] = Tile.ROAD; break;
+                    case 'A': tiles[y][x] = Tile.SAND; break;
+                    case 'I': tiles[y][x] = Tile.ICE; break;
+                    default: tiles[y][x] = Tile.WALL; break;
+                }
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * An AI which always returns the same move.
+     */
+    private static class FixedDriver implements DriverAI {
+
+        /**
+         * The move returned on every turn.
+         */
+        private final int[] move;
+        /**
+         * The last coordinates given to the AI. (Kept, so the array is created the same way as for a real AI.)
+         */
+        private int[] coordinates;
+        /**
+         * The last velocity given to the AI. (Kept, so the array is created the same way as for a real AI.)
+         */
+        private int[] velocity;
+
+        /**
+         * The FixedDriver class constructor.
+         * @param move the move returned on every turn.
+         */
+        FixedDriver(int[] move) {
+            this.move = move;
+        }
+
+        @Override
+        public int[] drive(int[] carCoordinates, int[] carVelocity, Tile[][] map) {
+            return move;
+        }
+
+        @Override
+        public void init(Tile[][] map) {
+        }
+
+        @Override
+        public int[] drive(int[] carCoordinates, int[] carVelocity, MapView map) {
+            coordinates = carCoordinates;
+            velocity = carVelocity;
+            return move;
+        }
+
+        @Override
+        public void init(MapView map) {
+        }
+
+    }
+
+}
@@ -90,7 +90,7 @@ public class CarPanel extends JPanel {
         c.weightx = 2;
         add(aiLabel, c);
 
-        addAI = new JButton(new ImageIcon(Resources.folder));
+        addAI = Resources.folder == null ? new JButton("...") : new JButton(new ImageIcon(Resources.folder));
         addAI.setMinimumSize(new Dimension(42, 42));
         addAI.setMaximumSize(new Dimension(42, 42));
         addAI.addActionListener(e -> aiFileManager());
@@ -4,21 +4,23 @@ import org.xml.sax.SAXException;
 import model.*;
 import util.AICompiler;
 import util.MapFormatException;
+import util.MapRepository;
 
 import javax.swing.*;
 import javax.xml.parsers.ParserConfigurationException;
 import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.event.MouseEvent;
 import java.io.IOException;
 import java.util.ArrayList;
 
-import static java.lang.Math.abs;
-import static java.lang.Math.sqrt;
-
 /**
- * Manages the game. (all components of the game, the turn cycle of the game, all game logic, game GUI and game view)
+ * Manages the game GUI and game view. (all components of the game and the interaction with the user)
+ * The game rules are left to the RaceEngine, whose state is displayed by the game.
+ * @see RaceEngine
  */
 public class Game extends JPanel implements KeyListener {
 
@@ -27,13 +29,13 @@ public class Game extends JPanel implements KeyListener {
      */
     private final static int MAP_INDENT = 16;
     /**
-     * The maximum of turns players can take before being DQed.
+     * The width of the GUI displayed next to the map.
      */
-    private final static int TURN_MAX = 500;
+    private final static int GUI_WIDTH = 96;
     /**
-     * The name of the tile-set file used for reading map files.
+     * The height of the JLabel displaying the controls under the map.
      */
-    private final static String TILE_SET_FILE_NAME = "RacetrackTileSet.tsx";
+    private final static int CONTROLS_HEIGHT = 32;
 
     /**
      * Current size of one tile. All in-game components calculate their size from this value.
@@ -70,10 +72,23 @@ public class Game extends JPanel implements KeyListener {
      */
     private JButton hideScore;
 
+    /**
+     * Contains the map, the cars and the crosshair.
+     * Shows only the part of the map which fits into the game next to the GUI.
+     */
+    private JPanel viewport;
+    /**
+     * The position of the visible part of the map in pixels. (The top-left corner of the viewport on the map.)
+     */
+    private int cameraX, cameraY;
     /**
      * The instance of the Map used in the game.
      */
     private Map map;
+    /**
+     * The engine running the race displayed by the game.
+     */
+    private RaceEngine engine;
     /**
      * An array containing all Cars.
      */
@@ -82,10 +97,6 @@ public class Game extends JPanel implements KeyListener {
      * 2D array of CrosshairTiles forming the crosshair used to get input from human players.
      */
     private CrosshairTile[][] ch;
-    /**
-     * An array containing all Checkpoints.
-     */
-    private Checkpoint[] checkpoints;
     /**
      * The index of the Car currently on turn.
      */
@@ -94,18 +105,6 @@ public class Game extends JPanel implements KeyListener {
      * The Car currently on turn.
      */
     private Car activeCar;
-    /**
-     * Used to stop the car from moving further. (E.g. after it crashed into a wall.)
-     */
-    private boolean stop;
-    /**
-     * Stores the current turn.
-     */
-    private int turn;
-    /**
-     * The number of cars which have finished the race.
-     */
-    private int carsFinished;
     /**
      * Used to store the next move an AI wants to make.
      */
@@ -133,8 +132,7 @@ public class Game extends JPanel implements KeyListener {
      * @see Game#initScorePanel()
      * @see Game#initGUI()
      * @see Game#addComponents()
-     * @see Game#moveCarsToStart()
-     * @see Game#initCheckpoints(int)
+     * @see Game#initEngine()
      * @see Game#initRace()
      */
     Game(Menu menu) throws IOException, MapFormatException, SAXException, ParserConfigurationException {
@@ -143,16 +141,13 @@ public class Game extends JPanel implements KeyListener {
         initCrosshair();
         initCars(menu.getCarPanels());
         initMap(menu.getMapName());
+        initEngine();
         initScorePanel();
         initGUI();
         addComponents();
 
         moveCarsToStart();
-        initCheckpoints(menu.getCarPanels().size());
         activeCarIndex = cars.length - 1;
-        stop = false;
-        turn = 0;
-        carsFinished = 0;
         nextAiMove = new int[]{0,0};
         waitingForEnter = false;
 
@@ -170,6 +165,18 @@ public class Game extends JPanel implements KeyListener {
         setFocusable(true);
         requestFocusInWindow();
         addKeyListener(this);
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                updateView();
+            }
+        });
+
+        viewport = new JPanel();
+        viewport.setLayout(null);
+        viewport.setBackground(Color.darkGray);
+        cameraX = 0;
+        cameraY = 0;
     }
 
     /**
@@ -202,9 +209,10 @@ public class Game extends JPanel implements KeyListener {
     private void initGUI() {
         Font fontBig = new Font(Font.SANS_SERIF, Font.BOLD, 24);
         Font fontSmall = new Font(Font.SANS_SERIF, Font.PLAIN, 16);
-        int guiX = map.getX() + map.getWidth() + MAP_INDENT;
+        updateViewport();
+        int guiX = viewport.getX() + viewport.getWidth() + MAP_INDENT;
 
-        turnLabel = new JLabel(Integer.toString(turn));
+        turnLabel = new JLabel(Integer.toString(engine.getTurn()));
         turnLabel.setVisible(true);
         turnLabel.setBounds(guiX, MAP_INDENT,120, 50);
         turnLabel.setFont(fontBig);
@@ -213,20 +221,20 @@ public class Game extends JPanel implements KeyListener {
         back = new JButton("Back");
         back.setVisible(true);
         back.addActionListener(e -> Main.goToMenu(tileSize));
-        back.setBounds(guiX, turnLabel.getY() + turnLabel.getHeight() + MAP_INDENT / 2, 96, 32);
+        back.setBounds(guiX, turnLabel.getY() + turnLabel.getHeight() + MAP_INDENT / 2, GUI_WIDTH, 32);
         back.setFont(fontSmall);
         back.setForeground(Color.black);
 
         showScore = new JButton("Score");
         showScore.setVisible(false);
         showScore.addActionListener(e -> showScore());
-        showScore.setBounds(guiX, back.getY() + back.getHeight() + MAP_INDENT / 2, 96, 32);
+        showScore.setBounds(guiX, back.getY() + back.getHeight() + MAP_INDENT / 2, GUI_WIDTH, 32);
         showScore.setFont(fontSmall);
         showScore.setForeground(Color.black);
 
-        controls = new JLabel("ENTER -> make AI make its move       PLUS -> zoom in        MINUS -> zoom out");
+        controls = new JLabel("ENTER -> make AI make its move     PLUS -> zoom in      MINUS -> zoom out      ARROWS -> move view");
         controls.setVisible(true);
-        controls.setBounds(MAP_INDENT, MAP_INDENT + map.getHeight(), 500, 32);
+        controls.setBounds(MAP_INDENT, viewport.getY() + viewport.getHeight(), 600, CONTROLS_HEIGHT);
         controls.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 11));
         controls.setForeground(Color.black);
     }
@@ -240,12 +248,13 @@ public class Game extends JPanel implements KeyListener {
      * @throws MapFormatException thrown if there is no start on the map or there is more than one start
      *                            or if there is no finish.
      * @see Map
+     * @see MapData
      */
     private void initMap(String mapName) throws ParserConfigurationException, SAXException, IOException, MapFormatException {
-        map = new Map(mapName, TILE_SET_FILE_NAME, this);
-        map.setLocation(MAP_INDENT, MAP_INDENT);
+        map = new Map(MapRepository.get(mapName), this);
+        map.setLocation(0, 0);
         map.setVisible(true);
-        add(map);
+        viewport.add(map);
 
         System.out.println("map initialized");
     }
@@ -256,6 +265,7 @@ public class Game extends JPanel implements KeyListener {
      *                  from which the settings of cars are to be gathered using their get-methods.
      * @throws IOException
      * @see Car
+     * @see CarState
      * @see DriverAI
      * @see AICompiler
      */
@@ -265,11 +275,11 @@ public class Game extends JPanel implements KeyListener {
         int i = 0;
         for (CarPanel panel : carPanels) {
             if (panel.getAiName() == null) {
-                cars[i] = new Car(panel.getPlayerName(), "HUMAN", panel.getCarColor(), null, this);
+                cars[i] = new Car(new CarState(panel.getPlayerName(), "HUMAN", null), panel.getCarColor(), this);
             } else {
-                cars[i] = new Car(panel.getPlayerName(), panel.getAiName(), panel.getCarColor(), aiCompiler.compile(panel), this);
+                cars[i] = new Car(new CarState(panel.getPlayerName(), panel.getAiName(), aiCompiler.compile(panel)), panel.getCarColor(), this);
             }
-            add(cars[i]);
+            viewport.add(cars[i]);
             i++;
         }
         System.out.printf("%d cars initiated\n", cars.length);
@@ -292,51 +302,15 @@ public class Game extends JPanel implements KeyListener {
     }
 
     /**
-     * Finds all CHECKPOINT tiles on the map and initializes checkpoints.
-     * Treats more CHECKPOINT tiles next to each other as one checkpoint.
-     * @param numberOfCars the number of instances of Car in the game.
-     * @see Checkpoint
+     * Initializes the engine which runs the race on the map with the cars.
+     * @see RaceEngine
      */
-    private void initCheckpoints(int numberOfCars) {
-
-        checkpoints = new Checkpoint[0];
-        boolean foundCheckpoint = false;
-
-        for (int x = 0; x < map.getWidthInTiles(); x++) {
-            for (int y = 0; y < map.getHeightInTiles(); y++) {
-
-                if (map.getTile(x, y) == Tile.CHECKPOINT) {
-                    for (Checkpoint ch : checkpoints) {
-                        for (int i = 0; i < ch.getNoOfTiles(); i++) {
-                            if ((ch.getXOfTile(i) - 1 <= x) && (x <= ch.getXOfTile(i) + 1) && (ch.getYOfTile(i) - 1 <= y) && (y <= ch.getYOfTile(i) + 1)) {
-                                ch.addTile(x, y);
-                                foundCheckpoint = true;
-                            }
-                            if (foundCheckpoint) {
-                                break;
-                            }
-                        }
-                        if (foundCheckpoint) {
-                            break;
-                        }
-                    }
-
-                    if (!foundCheckpoint) {
-                        Checkpoint[] checkTemp = new Checkpoint[checkpoints.length + 1];
-                        System.arraycopy(checkpoints, 0, checkTemp, 0, checkpoints.length);
-                        Checkpoint ch = new Checkpoint(x, y, numberOfCars);
-                        checkTemp[checkTemp.length - 1] = ch;
-                        checkpoints = checkTemp;
-                    }
-
-                    foundCheckpoint = false;
-                }
-
-            }
+    private void initEngine() {
+        CarState[] states = new CarState[cars.length];
+        for (int i = 0; i < cars.length; i++) {
+            states[i] = cars[i].getState();
         }
-
-        System.out.println(checkpoints.length + " checkpoints initialized");
-
+        engine = new RaceEngine(map.getData(), states);
     }
 
     /**
@@ -347,27 +321,28 @@ public class Game extends JPanel implements KeyListener {
         add(scoreScrollPane);
         addCrosshair();
         addCars();
-        add(map);
+        viewport.add(map);
+        add(viewport);
         addGUI();
     }
 
     /**
-     * Adds the crosshair (used to get input from human players) to the game.
+     * Adds the crosshair (used to get input from human players) to the viewport.
      */
     private void addCrosshair() {
         for (CrosshairTile[] cLine : ch) {
             for(CrosshairTile c : cLine) {
-                add(c);
+                viewport.add(c);
             }
         }
     }
 
     /**
-     * Adds all cars to the game.
+     * Adds all cars to the viewport.
      */
     private void addCars() {
         for (Car car : cars) {
-            add(car);
+            viewport.add(car);
         }
     }
 
@@ -383,28 +358,24 @@ public class Game extends JPanel implements KeyListener {
     }
 
     /**
-     * Relocates all cars to the start.
+     * Moves all cars and the crosshair to the start. (The engine has already placed the cars there.)
      */
     private void moveCarsToStart() {
         for (Car car : cars) {
-            moveCar(car, map.getStart()[0], map.getStart()[1]);
+            moveCar(car);
         }
-        moveCH(map.getStart()[0], map.getStart()[1]);
+        moveCH(map.getData().getStart()[0], map.getData().getStart()[1]);
     }
 
 
     /**
-     * Calls the init() method of each AI in the game
+     * Lets the engine call the init() method of each AI in the game
      * and then calls the nextTurn() method to start the first turn of the first player.
-     * @see DriverAI#init(Tile[][])
+     * @see RaceEngine#initDrivers()
      * @see Game#nextTurn()
      */
     private void initRace() {
-        for (Car car : cars) {
-            if (car.getDriver() != null) {
-                car.getDriver().init(map.getMapCopy());
-            }
-        }
+        engine.initDrivers();
         nextTurn();
     }
 
@@ -414,8 +385,7 @@ public class Game extends JPanel implements KeyListener {
      * Cycles through cars so different one is on turn each time.
      * Increases the turn count by one every time the game cycles through all cars.
      * Determines whether a human or an AI is on turn.
-     * If an AI is on turn, calls its drive() method to determine its next move,
-     * checks if the move made by AI is valid,
+     * If an AI is on turn, lets the engine determine its next move,
      * shows it by highlighting the corresponding crosshair tile
      * and waits for the user to press ENTER (see keyPressed() method),
      * which calls the drive() method and then calls nextTurn() again.
@@ -424,25 +394,23 @@ public class Game extends JPanel implements KeyListener {
      * Calls the endRace() method to end the race when all cars are finished or sunk or the turn-max is reached.
      * @see Game#updateTurnCount()
      * @see Game#nextCar()
-     * @see Game#nextAiMoveValid()
      * @see Game#keyPressed(KeyEvent)
      * @see Game#onCHClick(int[])
-     * @see Game#drive(Car, int[])
+     * @see Game#drive(int[])
      * @see Game#endRace()
-     * @see DriverAI#drive(int[], int[], Tile[][])
+     * @see RaceEngine#nextAiMove()
      */
     private void nextTurn() {
-        if (allCarsIdle()) {
-            endRace();
-        } else if (turn >= TURN_MAX) {
-            System.out.println("Turn limit reached!");
+        if (engine.isRaceOver()) {
             endRace();
         } else {
             nextCar();
+            followActiveCar();
             if (activeCar.isCrashed()) {
-                activeCar.countdown();
+                engine.countdown();
+                activeCar.repaint();
                 nextTurn();
-            } else if (map.getTile(activeCar.getCoordinates()) == Tile.ICE && (activeCar.getVelX() != 0 || activeCar.getVelY() != 0)) {
+            } else if (engine.activeCarSliding()) {
                 nextAiMove = new int[]{0,0};
                 showCH();
                 showNextAiMove(true);
@@ -450,15 +418,7 @@ public class Game extends JPanel implements KeyListener {
             } else {
                 showCH();
                 if (!humanOnTurn()) {
-                    try {
-                        nextAiMove = activeCar.getDriver().drive(activeCar.getCoordinates(), activeCar.getVelocity(), map.getMapCopy());
-                        if (!nextAiMoveValid()) {
-                            nextAiMove = new int[]{0,0};
-                        }
-                    } catch (Exception e) {
-                        System.out.println("An error occurred when the drive() method of the " + activeCar.getAiName() + " was called.");
-                        nextAiMove = new int[]{0,0};
-                    }
+                    nextAiMove = engine.nextAiMove();
                     showNextAiMove(true);
                     waitingForEnter = true;
                 }
@@ -468,22 +428,6 @@ public class Game extends JPanel implements KeyListener {
         }
     }
 
-    /**
-     * Determines whether the move AI made when its drive() method was called is valid.
-     * @return true if nextAiMove is a valid move.
-     * @see DriverAI#drive(int[], int[], Tile[][])
-     */
-    private boolean nextAiMoveValid() {
-        if (nextAiMove.length != 2) {
-            return false;
-        } else if ( (nextAiMove[0] == -1 || nextAiMove[0] == 0 || nextAiMove[0] == 1)
-                 && (nextAiMove[1] == -1 || nextAiMove[1] == 0 || nextAiMove[1] == 1 ) ) {
-            return true;
-        } else {
-            return false;
-        }
-    }
-
     /**
      * Is called when crosshair is clicked.
      * Calls drive() method and passes the index of the crosshair tile clicked received as parameter.
@@ -492,13 +436,13 @@ public class Game extends JPanel implements KeyListener {
      * Then calls nextTurn() to start the next turn.
      * @param index the index of the clicked crosshair tile.
      * @see CrosshairTile#mouseClicked(MouseEvent)
-     * @see Game#drive(Car, int[])
+     * @see Game#drive(int[])
      * @see Game#nextTurn()
      */
     public void onCHClick(int[] index) {
         if (humanOnTurn() && !activeCarOnIce()) {
             hideCH();
-            drive(activeCar, index);
+            drive(index);
             nextTurn();
         }
     }
@@ -509,11 +453,12 @@ public class Game extends JPanel implements KeyListener {
     /**
      * Is called when a key on the keyboard is pressed.
      * MINUS and PLUS keys zoom in and out of the game view.
+     * ARROW keys move the view by one tile.
      * When ENTER is pressed, if AI is on turn and waiting for the user,
      * the turn of the AI is performed by calling the drive() method
      * and nextTurn() method is called to begin the next turn.
      * @param e
-     * @see Game#drive(Car, int[])
+     * @see Game#drive(int[])
      * @see Game#nextTurn()
      */
     @Override
@@ -522,7 +467,7 @@ public class Game extends JPanel implements KeyListener {
             if (waitingForEnter) {
                 waitingForEnter = false;
                 hideCH();
-                drive(activeCar, nextAiMove);
+                drive(nextAiMove);
                 nextTurn();
             }
         } else if (e.getKeyCode() == KeyEvent.VK_MINUS) {
@@ -535,6 +480,14 @@ public class Game extends JPanel implements KeyListener {
                 tileSize += 4;
                 updateView();
             }
+        } else if (e.getKeyCode() == KeyEvent.VK_LEFT) {
+            moveCamera(cameraX - tileSize, cameraY);
+        } else if (e.getKeyCode() == KeyEvent.VK_RIGHT) {
+            moveCamera(cameraX + tileSize, cameraY);
+        } else if (e.getKeyCode() == KeyEvent.VK_UP) {
+            moveCamera(cameraX, cameraY - tileSize);
+        } else if (e.getKeyCode() == KeyEvent.VK_DOWN) {
+            moveCamera(cameraX, cameraY + tileSize);
         }
     }
 
@@ -542,243 +495,21 @@ public class Game extends JPanel implements KeyListener {
     public void keyReleased(KeyEvent e) {}
 
     /**
-     * Changes the velocity vector of the car according to the move made by the player
-     * given to this method as the int[] a parameter using the Car.accelerate(int[] a) method
-     * and calls the goThroughPath() method to make the car travel through the path
-     * it is to take this turn according to its velocity vector tile by tile.
-     * @param car the car which is to be driven.
+     * Lets the engine drive the active car according to the move made by the player
+     * and updates the view of the car afterwards.
+     * Only the old and the new area of the car are repainted. (The map does not change.)
+     * Creates new instance of ScorePanel to display the score if the car has finished the race.
      * @param a the acceleration vector which is to be added to the velocity vector of the car before it is driven.
-     * @see Car#accelerate(int[])
-     * @see Game#goThroughPath(Car)
-     */
-    private void drive(Car car, int[] a) {
-        car.accelerate(a);
-        goThroughPath(car);
-    }
-
-    /**
-     * Finds the straightest symmetrical path from the current location of the car to the target location.
-     * (target location = current location + car velocity vector)
-     * The car can move to any adjacent tile including diagonal ones.
-     * Car then moves tile by tile through the path.
-     * checkTile() method is called for each tile the car moves over to determine if the car can move there
-     * and if any special actions are to be made on that tile.
-     * Stops going through tiles if the car crashes (drives into a wall) or sinks (drives into water).
-     * @param car the car which is to change its position by adding its velocity vector to it
-     *            and go through all tiles in the path.
-     * @see Car
-     * @see Game#checkTile(Car, int, int)
-     */
-    @SuppressWarnings("Duplicates")
-    private void goThroughPath(Car car) {
-
-        int initX = car.getTileX();
-        int initY = car.getTileY();
-        int targetX = initX + car.getVelX();
-        int targetY = initY + car.getVelY();
-        int dirX = Integer.compare(targetX, initX);
-        int dirY = Integer.compare(targetY, initY);
-
-        if (initX == targetX) {
-            for (int y = initY + dirY; y - dirY != targetY; y += dirY) {
-                checkTile(car, initX, y);
-                if (stop) {
-                    break;
-                }
-            }
-
-        } else if (initY == targetY) {
-            for (int x = initX + dirX; x - dirX != targetX; x += dirX) {
-                checkTile(car, x, initY);
-                if (stop) {
-                    break;
-                }
-            }
-
-        } else if (abs(initX - targetX) == abs(initY - targetY)) {
-            int x, y;
-            for (int i = 1; i <= abs(initX - targetX); i++) {
-                x = initX + dirX * i;
-                y = initY + dirY * i;
-                checkTile(car, x, y);
-                if (stop) {
-                    break;
-                }
-            }
-
-        } else {
-            int a = -(targetY - initY);
-            int b = targetX - initX;
-            int c = - a * initX - b * initY;
-            boolean firstTile = true;
-
-            if (abs(initX - targetX) > abs(initY - targetY)) {
-                for (int x = initX; x - dirX != targetX; x += dirX) {
-                    for (int y = initY; y - dirY != targetY; y += dirY) {
-                        if (firstTile) {
-                            firstTile = false;
-                        } else if (abs(a * x + b * y + c) / (sqrt(a * a + b * b)) <= 0.5) {
-                            checkTile(car, x, y);
-                        }
-                        if (stop) {
-                            break;
-                        }
-                    }
-                    if (stop) {
-                        break;
-                    }
-                }
-            } else {
-                for (int y = initY; y - dirY != targetY; y += dirY) {
-                    for (int x = initX; x - dirX != targetX; x += dirX) {
-                        if (firstTile) {
-                            firstTile = false;
-                        } else if (abs(a * x + b * y + c) / (sqrt(a * a + b * b)) <= 0.5) {
-                            checkTile(car, x, y);
-                        }
-                        if (stop) {
-                            break;
-                        }
-                    }
-                    if (stop) {
-                        break;
-                    }
-                }
-            }
-        }
-
-        stop = false;
-    }
-
-    /**
-     * Checks whether the tile is rideable using the Map.isTileRideable() method
-     * and moves the car there or calls the onCarCrash() method accordingly.
-     * Calls the checkForSpecialTiles() method to check if any special actions are to be made on this tile.
-     * @param car the car which is to be moved to the tile or crashed depending on the type of the tile.
-     * @param x the X coordinate of the tile which is to be checked.
-     * @param y the Y coordinate of the tile which is to be checked.
-     * @see Map#isTileRideable(int, int)
-     * @see Game#moveCar(Car, int, int)
-     * @see Game#onCarCrash(Car)
-     */
-    private void checkTile(Car car, int x, int y) {
-        if (map.isTileRideable(x, y)) {
-            moveCar(car, x, y);
-            checkForSpecialTiles(car, x, y);
-        } else {
-            onCarCrash(car);
-        }
-    }
-
-    /**
-     * Sets the velocity vector of the car to (0;0).
-     * Calls the car.crashed() method.
-     * Sets boolean stop to true to stop the goThroughPath() method from going through any more tiles.
-     * @param car the car that crashed.
-     * @see Car#setVelocity(int[])
-     * @see Car#crashed()
-     */
-    private void onCarCrash(Car car) {
-        car.setVelocity(new int[]{0,0});
-        car.crashed();
-        stop = true;
-    }
-
-    /**
-     * Calls all methods which check for special tiles.
-     * @param car the car which has driven over the tile
-     *            and which will be affected by the special actions if there are any on the tile.
-     * @param x the X coordinate of the tile which is to be checked for special actions.
-     * @param y the Y coordinate of the tile which is to be checked for special actions.
-     * @see Game#checkForCheckpoint(int, int)
-     * @see Game#checkForFinish(Car, int, int)
-     * @see Game#checkForSand(Car, int, int)
-     * @see Game#checkForWater(Car, int, int)
-     */
-    private void checkForSpecialTiles(Car car, int x, int y) {
-        checkForCheckpoint(x, y);
-        checkForFinish(car, x, y);
-        checkForSand(car, x, y);
-        checkForWater(car, x, y);
-    }
-
-    /**
-     * Checks whether the tile is checkpoint and saves that the car has passed this checkpoint
-     * using the Checkpoint.carPassed() if so.
-     * @param x the X coordinate of the tile which is to be checked.
-     * @param y the Y coordinate of the tile which is to be checked.
-     * @see Checkpoint
-     * @see Checkpoint#carPassed(int)
-     */
-    private void checkForCheckpoint(int x, int y) {
-        if (map.getTile(x, y) == Tile.CHECKPOINT) {
-            for (int i = 0; i < checkpoints.length; i++) {
-                if (checkpoints[i].tileBelongsTo(x, y) && !checkpoints[i].getCarPassed(activeCarIndex)) {
-                    checkpoints[i].carPassed(activeCarIndex);
-                    System.out.println("car" + activeCarIndex + " passed checkpoint" + i);
-                }
-                if (checkpoints[i].tileBelongsTo(x, y)) {
-                    break;
-                }
-            }
-        }
-    }
-
-    /**
-     * Checks whether the tile is finish and if the car has passed all checkpoints.
-     * Calls the Car.finished() method and creates new instance of CarPanel
-     * to display the score for the finished car.
-     * @param car the car which had driven over the tile.
-     * @param x the X coordinate of the tile which is to be checked.
-     * @param y the Y coordinate of the tile which is to be checked.
-     * @see Car#finished()
-     * @see CarPanel
-     */
-    private void checkForFinish(Car car, int x, int y) {
-        if (map.getTile(x, y) == Tile.FINISH) {
-            for (Checkpoint ch : checkpoints) {
-                if (!ch.getCarPassed(activeCarIndex)) {
-                    return;
-                }
-            }
-            car.finished();
-            carsFinished++;
-            scoreMainPanel.add(new ScorePanel(carsFinished, car.getPlayerName(), car.getAiName(), turn));
-            stop = true;
-            System.out.println("Car" + activeCarIndex + " finished the race!");
-        }
-    }
-
-    /**
-     * Checks whether the tile is sand and sets the car velocity vector to (0;0)
-     * using the Car.setVelocity(int[] velocity) method if so.
-     * @param car the car which has driven over the tile.
-     * @param x the X coordinate of the tile which is to be checked.
-     * @param y the Y coordinate of the tile which is to be checked.
-     * @see Car#setVelocity(int[])
-     */
-    private void checkForSand(Car car, int x, int y) {
-        if (map.getTile(x, y) == Tile.SAND) {
-            car.setVelocity(new int[]{0,0});
-            stop = true;
-        }
-    }
-
-    /**
-     * Checks whether the tile is water and sets the car as "sunk"
-     * using the Car.sunk() method if so.
-     * (Sunk car cannot continue the race and is DQed.)
-     * @param car the car which has driven over the tile.
-     * @param x the X coordinate of the tile which is to be checked.
-     * @param y the Y coordinate of the tile which is to be checked.
-     * @see Car#sunk()
+     * @see RaceEngine#drive(int, int)
+     * @see ScorePanel
      */
-    private void checkForWater(Car car, int x, int y) {
-        if (map.getTile(x, y) == Tile.WATER) {
-            car.sunk();
-            stop = true;
-            System.out.println("Car" + activeCarIndex + " sunk!");
+    private void drive(int[] a) {
+        engine.drive(a[0], a[1]);
+        moveCar(activeCar);
+        if (activeCar.isFinished()) {
+            scoreMainPanel.add(new ScorePanel(engine.getCarsFinished(), activeCar.getPlayerName(), activeCar.getAiName(), engine.getTurn()));
         }
+        activeCar.repaint();
     }
 
     /**
@@ -786,25 +517,18 @@ public class Game extends JPanel implements KeyListener {
      * @return true if the active car is on ICE.
      */
     public boolean activeCarOnIce() {
-        if (map.getTile(activeCar.getCoordinates()) == Tile.ICE) {
-            return true;
-        } else {
-            return false;
-        }
+        return engine.activeCarOnIce();
     }
 
 
 
     /**
-     * Moves the given car to the given coordinates.
+     * Moves the given car to its current coordinates.
      * @param car the car to be moved.
-     * @param x the X coordinate to which the car is to be moved.
-     * @param y the Y coordinate to which the car is to be moved.
      * @see Car
      */
-    private void moveCar(Car car, int x, int y) {
-        car.setCoordinates(x,y);
-        car.setLocation(MAP_INDENT + x * tileSize, MAP_INDENT + y * tileSize);
+    private void moveCar(Car car) {
+        car.setLocation(car.getTileX() * tileSize - cameraX, car.getTileY() * tileSize - cameraY);
     }
 
     /**
@@ -817,7 +541,7 @@ public class Game extends JPanel implements KeyListener {
         for (CrosshairTile[] cLine : ch) {
             for (CrosshairTile c : cLine) {
                 c.setTileXY(x + c.getIndex()[0], y + c.getIndex()[1]);
-                c.setLocation(MAP_INDENT + c.getTileX() * tileSize, MAP_INDENT + c.getTileY() * tileSize);
+                c.setLocation(c.getTileX() * tileSize - cameraX, c.getTileY() * tileSize - cameraY);
             }
         }
     }
@@ -865,70 +589,39 @@ public class Game extends JPanel implements KeyListener {
                 } else {
                     c.setIsNextAiMove(false);
                 }
+                c.repaint();
             }
         }
-        repaint();
-    }
-
-    /**
-     * Returns true if all cars are finished or sunk.
-     * @return true if all cars are finished or sunk
-     */
-    private boolean allCarsIdle() {
-        for (Car c : cars) {
-            if (!c.isFinished() && !c.isSunk()) {
-                return false;
-            }
-        }
-        return true;
     }
 
     /**
-     * Keeps calling the rotateCar() method until the activeCar is a car which has not finished or sunk yet.
-     * Then calls moveActiveCarToForeground() method.
-     * @see Game#rotateCar()
+     * Lets the engine rotate to the next car which has not finished or sunk yet.
+     * Then updates the turn count and calls moveActiveCarToForeground() method.
+     * @see RaceEngine#nextCar()
      * @see Game#moveActiveCarToForeground()
      */
     private void nextCar() {
-        rotateCar();
-        while (cars[activeCarIndex].isSunk() || cars[activeCarIndex].isFinished()) {
-            rotateCar();
-        }
-        moveActiveCarToForeground();
-    }
-
-    /**
-     * Rotates activeCarIndex and activeCar to the next car. Increases whenever the activeCarIndex is 0.
-     */
-    private void rotateCar() {
-        if (activeCarIndex < cars.length - 1) {
-            activeCarIndex++;
-        } else {
-            activeCarIndex = 0;
-        }
+        engine.nextCar();
+        activeCarIndex = engine.getActiveCarIndex();
         activeCar = cars[activeCarIndex];
-        if (activeCarIndex == 0) {
-            turn++;
-            updateTurnCount();
-        }
+        updateTurnCount();
+        moveActiveCarToForeground();
     }
 
     /**
      * Moves the activeCar to the foreground so it is not covered up by other cars.
      */
     private void moveActiveCarToForeground() {
-        add(scoreScrollPane);
         addCrosshair();
 
         for (int i = activeCarIndex; i >= 0; i--) {
-            add(cars[i]);
+            viewport.add(cars[i]);
         }
         for (int i = cars.length - 1; i > activeCarIndex; i--) {
-            add(cars[i]);
+            viewport.add(cars[i]);
         }
 
-        add(map);
-        addGUI();
+        viewport.add(map);
     }
 
     /**
@@ -941,7 +634,7 @@ public class Game extends JPanel implements KeyListener {
     private void endRace() {
         for (Car car : cars) {
             if (!car.isFinished()) {
-                scoreMainPanel.add(new ScorePanel(-1, car.getPlayerName(), car.getAiName(), turn));
+                scoreMainPanel.add(new ScorePanel(-1, car.getPlayerName(), car.getAiName(), engine.getTurn()));
             }
         }
         showScore();
@@ -960,7 +653,7 @@ public class Game extends JPanel implements KeyListener {
      * Updates the text of JPanel turnLabel to show the correct value.
      */
     private void updateTurnCount() {
-        turnLabel.setText(Integer.toString(turn));
+        turnLabel.setText(Integer.toString(engine.getTurn()));
     }
 
 
@@ -969,8 +662,9 @@ public class Game extends JPanel implements KeyListener {
      * Repaint components of the game with correct sizes and positions.
      */
     private void updateView() {
+        updateViewport();
         for (Car car : cars) {
-            moveCar(car, car.getTileX(), car.getTileY());
+            moveCar(car);
         }
         moveCH(ch[1][1].getTileX(), ch[1][1].getTileY());
         moveGUI();
@@ -981,11 +675,56 @@ public class Game extends JPanel implements KeyListener {
      *  Moves the GUI elements to the correct positions.
      */
     private void moveGUI() {
-        int guiX = MAP_INDENT + map.getWidthInTiles() * tileSize + MAP_INDENT;
+        int guiX = viewport.getX() + viewport.getWidth() + MAP_INDENT;
         turnLabel.setBounds(guiX, MAP_INDENT,50, 50);
-        back.setBounds(guiX, turnLabel.getY() + turnLabel.getHeight() + MAP_INDENT, 96, 32);
-        showScore.setBounds(guiX, back.getY() + back.getHeight() + MAP_INDENT / 2, 96, 32);
-        controls.setBounds(MAP_INDENT, MAP_INDENT + map.getHeightInTiles() * tileSize, 500, 32);
+        back.setBounds(guiX, turnLabel.getY() + turnLabel.getHeight() + MAP_INDENT, GUI_WIDTH, 32);
+        showScore.setBounds(guiX, back.getY() + back.getHeight() + MAP_INDENT / 2, GUI_WIDTH, 32);
+        controls.setBounds(MAP_INDENT, viewport.getY() + viewport.getHeight(), 600, CONTROLS_HEIGHT);
+    }
+
+    /**
+     * Sets the size of the viewport, so it shows as much of the map as fits into the game next to the GUI.
+     * Keeps the camera inside the map and moves the map according to it.
+     */
+    private void updateViewport() {
+        int mapWidth = map.getWidthInTiles() * tileSize;
+        int mapHeight = map.getHeightInTiles() * tileSize;
+        int width = mapWidth;
+        int height = mapHeight;
+        if (getWidth() > 0 && getHeight() > 0) {
+            width = Math.min(mapWidth, Math.max(tileSize, getWidth() - 3 * MAP_INDENT - GUI_WIDTH));
+            height = Math.min(mapHeight, Math.max(tileSize, getHeight() - 2 * MAP_INDENT - CONTROLS_HEIGHT));
+        }
+        viewport.setBounds(MAP_INDENT, MAP_INDENT, width, height);
+        cameraX = Math.max(0, Math.min(cameraX, mapWidth - width));
+        cameraY = Math.max(0, Math.min(cameraY, mapHeight - height));
+        map.setBounds(-cameraX, -cameraY, mapWidth, mapHeight);
+    }
+
+    /**
+     * Moves the camera to the given position and updates the view.
+     * @param x the X coordinate of the top-left corner of the viewport on the map in pixels.
+     * @param y the Y coordinate of the top-left corner of the viewport on the map in pixels.
+     * @see Game#updateView()
+     */
+    private void moveCamera(int x, int y) {
+        cameraX = x;
+        cameraY = y;
+        updateView();
+    }
+
+    /**
+     * Centers the camera on the active car if the car or the tiles it can reach this turn are not visible.
+     * (The tiles it can reach are covered by the crosshair.)
+     */
+    private void followActiveCar() {
+        int minX = Math.min(activeCar.getTileX(), activeCar.getTileX() + activeCar.getVelX() - 1) * tileSize;
+        int maxX = (Math.max(activeCar.getTileX(), activeCar.getTileX() + activeCar.getVelX() + 1) + 1) * tileSize;
+        int minY = Math.min(activeCar.getTileY(), activeCar.getTileY() + activeCar.getVelY() - 1) * tileSize;
+        int maxY = (Math.max(activeCar.getTileY(), activeCar.getTileY() + activeCar.getVelY() + 1) + 1) * tileSize;
+        if (minX < cameraX || maxX > cameraX + viewport.getWidth() || minY < cameraY || maxY > cameraY + viewport.getHeight()) {
+            moveCamera((minX + maxX - viewport.getWidth()) / 2, (minY + maxY - viewport.getHeight()) / 2);
+        }
     }
 
     /**
@@ -1,12 +1,21 @@
 package main;
 
+import model.CompiledMap;
+import model.MapData;
 import org.xml.sax.SAXException;
 import util.MapFormatException;
+import util.MapRepository;
+import util.MapWatcher;
 import util.Resources;
 
 import javax.swing.*;
 import javax.xml.parsers.ParserConfigurationException;
+import java.awt.*;
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 
 /**
  * Initializes the application, switches between menu and game.
@@ -30,6 +39,10 @@ public class Main {
      * The game window.
      */
     private static JFrame frame;
+    /**
+     * Shows the progress of loading the resources before the menu is shown.
+     */
+    private static JProgressBar loadingBar;
     /**
      * The game menu.
      */
@@ -41,28 +54,102 @@ public class Main {
 
     /**
      * The main method of the application.
-     * Calls Resources.load() to load resources.
-     * Calls menu and game initialization methods.
-     * @see Resources
+     * Shows the game frame and starts loading the resources in the background.
+     * Initializes the menu when the resources are loaded.
+     * Runs the tournament without any GUI instead if the first argument is "--tournament".
+     * Runs the races of a tournament instead if the first argument is "--tournament-worker". (see Tournament)
+     * Compiles a map instead if the first argument is "--compile-map".
+     * Reads and watches the maps in the given directory if the arguments start with "--map-dir".
+     * @see Resources#load(Resources.ProgressListener)
      * @see Main#initFrame()
      * @see Main#initMenu()
+     * @see Tournament#run(String[])
+     * @see Main#compileMap(String[])
+     * @see Main#watchMaps(String[])
      * @param args
      */
     public static void main(String[] args) {
-        Resources.load();
+        if (args.length > 0 && args[0].equals("--tournament")) {
+            Tournament.run(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        } else if (args.length > 0 && args[0].equals(Tournament.WORKER_ARGUMENT)) {
+            Tournament.runWorker();
+            return;
+        } else if (args.length > 0 && args[0].equals("--compile-map")) {
+            compileMap(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        watchMaps(args);
         initFrame();
-        initMenu();
+        Resources.load((loaded, total) -> SwingUtilities.invokeLater(() -> {
+            loadingBar.setMaximum(total);
+            loadingBar.setValue(loaded);
+        })).thenRun(() -> SwingUtilities.invokeLater(() -> {
+            frame.setIconImage(Resources.windowIcon);
+            frame.remove(loadingBar);
+            initMenu();
+        }));
+    }
+
+    /**
+     * Compiles the given map file into a binary file which can be loaded without parsing.
+     * @param args the arguments given after --compile-map. (the map file, the tile-set file and the output file)
+     * @see CompiledMap#compile(MapData, Path)
+     */
+    private static void compileMap(String[] args) {
+        if (args.length != 3) {
+            System.out.println("Usage: --compile-map <map file> <tile-set file> <output file>");
+            return;
+        }
+        try {
+            MapData map = new MapData(new File(args[0]), new File(args[1]));
+            CompiledMap.compile(map, Paths.get(args[2]));
+            System.out.println("Map " + args[0] + " compiled into " + args[2]);
+        } catch (IOException | SAXException | ParserConfigurationException | MapFormatException e) {
+            System.out.println("Map " + args[0] + " could not be compiled.");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Sets the map directory given after the "--map-dir" argument (or by the racetrack.mapDir system property)
+     * and starts watching it, so the changed maps are reloaded before the next game.
+     * @param args the arguments of the application.
+     * @see MapRepository#setMapDirectory(Path)
+     * @see MapWatcher#start(Path)
+     */
+    private static void watchMaps(String[] args) {
+        Path directory = MapRepository.getMapDirectory();
+        if (args.length > 1 && args[0].equals("--map-dir")) {
+            directory = Paths.get(args[1]);
+            MapRepository.setMapDirectory(directory);
+        } else if (args.length > 0 && args[0].equals("--map-dir")) {
+            System.out.println("Usage: --map-dir <directory>");
+        }
+        if (directory == null) {
+            return;
+        }
+        try {
+            MapWatcher.start(directory);
+        } catch (IOException e) {
+            System.out.println("Map directory " + directory + " cannot be watched.");
+            e.printStackTrace();
+        }
     }
 
     /**
-     * Initializes JFrame for the application.
+     * Initializes JFrame for the application. The frame shows the progress of loading the resources
+     * until the menu is initialized.
      */
     private static void initFrame() {
         frame = new JFrame(GAME_TITLE);
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setResizable(true);
         frame.setSize(GAME_WIDTH, GAME_HEIGHT);
-        frame.setIconImage(Resources.windowIcon);
+        loadingBar = new JProgressBar();
+        loadingBar.setStringPainted(true);
+        loadingBar.setString("Loading...");
+        frame.add(loadingBar, BorderLayout.SOUTH);
         frame.setVisible(true);
     }
 
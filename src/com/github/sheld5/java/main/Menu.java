@@ -1,10 +1,15 @@
 package main;
 
+import model.MapData;
 import util.DataReader;
+import util.MapRepository;
 
 import javax.swing.*;
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Manages the menu, all its components and all its functions.
@@ -14,6 +19,10 @@ class Menu extends JPanel {
      * The value to which the padding of GridBagLayouts used in the menu is set.
      */
     private final int DEFAULT_IPAD = 5;
+    /**
+     * The maximal number of threads used to load the maps in the background.
+     */
+    private final static int MAP_LOADER_THREADS = 2;
 
     /**
      * Font used in the menu.
@@ -54,7 +63,18 @@ class Menu extends JPanel {
     /**
      * Combo-box used to select the map.
      */
-    private JComboBox mapSelector;
+    private JComboBox<String> mapSelector;
+    /**
+     * The information about the loaded maps (size and number of checkpoints) mapped by the names of the maps. Maps which have not been loaded yet are not contained.
+     * (Only accessed from the event dispatch thread.)
+     */
+    private HashMap<String, String> mapInfo;
+    /**
+     * The reasons why the maps which could not be loaded are invalid mapped by the names of the maps.
+     * Valid maps and maps which have not been loaded yet are not contained.
+     * (Only accessed from the event dispatch thread.)
+     */
+    private HashMap<String, String> mapErrors;
     /**
      * Contains instances of CarPanel representing the cars.
      */
@@ -129,8 +149,10 @@ class Menu extends JPanel {
 
     /**
      * Initializes the Swing components of the game settings menu.
-     * Uses the getListOfFiles() method of the DataReader to get the list of map files.
+     * Uses the getListOfFiles() method of the DataReader to get the list of map files
+     * and starts loading the maps in the background.
      * @see DataReader#getListOfFiles(String)
+     * @see Menu#loadMaps(String[])
      */
     @SuppressWarnings("Duplicates")
     private void initGameModeSelection() {
@@ -161,9 +183,15 @@ class Menu extends JPanel {
         mapPanel.add(mapLabel);
 
         DataReader dr = new DataReader();
-        mapSelector = new JComboBox(dr.getListOfFiles("/META-INF/maps.txt"));
-        mapSelector.setPreferredSize(new Dimension(150, 25));
+        String[] mapNames = dr.getListOfFiles("/META-INF/maps.txt");
+        mapInfo = new HashMap<>();
+        mapErrors = new HashMap<>();
+        mapSelector = new JComboBox<>(mapNames);
+        mapSelector.setPreferredSize(new Dimension(280, 25));
+        mapSelector.setRenderer(new MapCellRenderer());
+        mapSelector.addActionListener(e -> updateMapToolTip());
         mapPanel.add(mapSelector);
+        loadMaps(mapNames);
 
         c.gridy = 3;
 
@@ -207,6 +235,49 @@ class Menu extends JPanel {
         addCar();
     }
 
+    /**
+     * Parses and validates all given maps in parallel on a small pool of daemon threads.
+     * The maps are put into the MapRepository, so the game does not need to parse the selected map again.
+     * The information about each map is shown in the map selector as soon as the map is loaded.
+     * The reason why a map is invalid is printed and shown in the tool-tip of the map.
+     * @param mapNames the names of the map files.
+     * @see MapRepository#get(String)
+     */
+    private void loadMaps(String[] mapNames) {
+        ExecutorService loader = Executors.newFixedThreadPool(Math.min(MAP_LOADER_THREADS, Math.max(1, mapNames.length)), r -> {
+            Thread thread = new Thread(r, "Map loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (String mapName : mapNames) {
+            loader.execute(() -> {
+                String info;
+                String error;
+                try {
+                    MapData map = MapRepository.get(mapName);
+                    info = map.getWidthInTiles() + "x" + map.getHeightInTiles() + ", "
+                            + map.getCheckpointCount() + " checkpoints";
+                    error = null;
+                } catch (Exception e) {
+                    info = "invalid map";
+                    error = e.getMessage() != null ? e.getMessage() : e.toString();
+                    System.out.println("Map " + mapName + " could not be loaded: " + error);
+                }
+                String finalInfo = info;
+                String finalError = error;
+                SwingUtilities.invokeLater(() -> {
+                    mapInfo.put(mapName, finalInfo);
+                    if (finalError != null) {
+                        mapErrors.put(mapName, finalError);
+                    }
+                    mapSelector.repaint();
+                    updateMapToolTip();
+                });
+            });
+        }
+        loader.shutdown();
+    }
+
     /**
      * Hides the main menu and shows the game settings menu.
      * @see Menu#setVisibleGameModeSelection(boolean)
@@ -295,6 +366,37 @@ class Menu extends JPanel {
         return (String)mapSelector.getSelectedItem();
     }
 
+    /**
+     * Shows the reason why the selected map is invalid in the tool-tip of the map selector.
+     * Removes the tool-tip if the selected map is valid or has not been loaded yet.
+     */
+    private void updateMapToolTip() {
+        mapSelector.setToolTipText(mapErrors.get(getMapName()));
+    }
+
+    /**
+     * Renders the items of the map selector. The items in the drop-down list show the size of the map
+     * and the number of checkpoints (or that the map is invalid) once the map is loaded.
+     * Invalid maps are shown in red with the reason why they are invalid in their tool-tip.
+     */
+    @SuppressWarnings("serial")
+    private class MapCellRenderer extends DefaultListCellRenderer {
+        @Override
+        public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+            super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+            String info = mapInfo.get(value);
+            if (index >= 0) {
+                setText(value + " (" + (info == null ? "loading..." : info) + ")");
+            }
+            String error = mapErrors.get(value);
+            if (error != null) {
+                setForeground(Color.red);
+            }
+            setToolTipText(error);
+            return this;
+        }
+    }
+
     /**
      * Returns an array containing all CarPanel instances of this menu.
      * @return the array containing all CarPanel instances of this menu.
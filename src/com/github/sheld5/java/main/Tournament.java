@@ -0,0 +1,628 @@
+package main;
+
+import model.CarState;
+import model.DriverAI;
+import model.MapData;
+import model.RaceEngine;
+import org.joor.Reflect;
+import util.AICompiler;
+import util.DataReader;
+import util.MapRepository;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a tournament from the command line. Every AI from the given directory races on every map (one race per pair)
+ * without any GUI. The races run in parallel in worker processes (one for each thread of the tournament),
+ * each of them with its own RaceEngine and its own instance of the AI. A race which does not finish in the time limit
+ * is stopped by killing its worker and reported as not finished, so one slow AI can neither stall the tournament
+ * nor slow down the races which follow it.
+ * Prints a table with the results of all races when all of them are finished.
+ * @see RaceEngine
+ */
+class Tournament {
+
+    /**
+     * The usage of the tournament mode printed if the arguments are not valid.
+     */
+    private final static String USAGE = "Usage: --tournament <ai directory> [-maps <map1,map2,...>] [-threads <n>]"
+            + " [-timeout <seconds>] [-log <directory>] [-out <file>]";
+    /**
+     * The default time limit of one race in seconds.
+     */
+    private final static int DEFAULT_TIMEOUT = 60;
+    /**
+     * The argument which starts the application as a worker process of a tournament.
+     */
+    final static String WORKER_ARGUMENT = "--tournament-worker";
+
+    /**
+     * The result of one race of one AI on one map.
+     */
+    private static class RaceResult {
+        /**
+         * The name of the AI and the name of the map.
+         */
+        private String aiName, mapName;
+        /**
+         * The number of turns the race took.
+         */
+        private int turns;
+        /**
+         * The number of times the car crashed.
+         */
+        private int crashes;
+        /**
+         * Is true if the car has sunk or finished the race.
+         */
+        private boolean sunk, finished;
+        /**
+         * The place of the AI among all AIs which finished the race on the same map. (0 if it did not finish.)
+         */
+        private int place;
+        /**
+         * How long the race took in milliseconds.
+         */
+        private long time;
+        /**
+         * The description of the error which prevented the race from being finished. (NULL if there was none.)
+         */
+        private String error;
+        /**
+         * Is true if the race has not finished in the time limit.
+         */
+        private boolean timedOut;
+
+        /**
+         * The RaceResult class constructor.
+         * @param aiName the name of the AI.
+         * @param mapName the name of the map.
+         */
+        private RaceResult(String aiName, String mapName) {
+            this.aiName = aiName;
+            this.mapName = mapName;
+        }
+    }
+
+    /**
+     * The entry point of the tournament mode. Parses the arguments, compiles the AIs, loads the maps,
+     * runs all races and prints the results.
+     * @param args the arguments given after --tournament. (see USAGE)
+     */
+    static void run(String[] args) {
+        if (args.length < 1 || args.length % 2 != 1) {
+            System.out.println(USAGE);
+            return;
+        }
+        File aiDirectory = new File(args[0]);
+        String[] mapNames = new DataReader().getListOfFiles("/META-INF/maps.txt");
+        int threads = Runtime.getRuntime().availableProcessors();
+        int timeout = DEFAULT_TIMEOUT;
+        File logDirectory = null;
+        String outFile = null;
+        for (int i = 1; i < args.length; i += 2) {
+            switch (args[i]) {
+                case "-maps":
+                    mapNames = args[i + 1].split(",");
+                    break;
+                case "-threads":
+                    threads = parsePositive(args[i + 1]);
+                    if (threads == -1) {
+                        System.out.println("The number of threads must be a positive integer: " + args[i + 1]);
+                        System.out.println(USAGE);
+                        return;
+                    }
+                    break;
+                case "-timeout":
+                    timeout = parsePositive(args[i + 1]);
+                    if (timeout == -1) {
+                        System.out.println("The time limit must be a positive number of seconds: " + args[i + 1]);
+                        System.out.println(USAGE);
+                        return;
+                    }
+                    break;
+                case "-log":
+                    logDirectory = new File(args[i + 1]);
+                    if (!logDirectory.isDirectory() && !logDirectory.mkdirs()) {
+                        System.out.println("Error while creating " + logDirectory);
+                        return;
+                    }
+                    break;
+                case "-out":
+                    outFile = args[i + 1];
+                    break;
+                default:
+                    System.out.println(USAGE);
+                    return;
+            }
+        }
+
+        LinkedHashMap<String, File> ais = compileAIs(aiDirectory);
+        List<String> maps = loadMaps(mapNames);
+        System.out.printf("Running %d races on %d threads\n", ais.size() * maps.size(), threads);
+
+        long start = System.nanoTime();
+        List<RaceResult> results = runRaces(ais, maps, threads, timeout, logDirectory);
+        long time = (System.nanoTime() - start) / 1000000;
+        assignPlaces(results);
+
+        if (outFile == null) {
+            printResults(results, System.out);
+        } else {
+            try (PrintStream out = new PrintStream(outFile)) {
+                printResults(results, out);
+            } catch (FileNotFoundException e) {
+                System.out.println("Error while writing " + outFile);
+                e.printStackTrace();
+            }
+        }
+        System.out.printf("Tournament finished in %d ms\n", time);
+    }
+
+    /**
+     * Parses the given positive integer.
+     * @param value the text of the number.
+     * @return the parsed number or -1 if the text is not a positive integer.
+     */
+    private static int parsePositive(String value) {
+        try {
+            int number = Integer.parseInt(value);
+            return number > 0 ? number : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Compiles all AIs in the given directory. (All java files except the DriverAI interface.)
+     * AIs which cannot be compiled are left out of the tournament.
+     * (The workers compile the AIs again, as the compiled classes cannot be passed to them.)
+     * @param aiDirectory the directory containing the java files of the AIs.
+     * @return the files of the AIs which can be compiled mapped by their names.
+     * @see AICompiler#compileClass(File, String)
+     */
+    private static LinkedHashMap<String, File> compileAIs(File aiDirectory) {
+        LinkedHashMap<String, File> ais = new LinkedHashMap<>();
+        File[] files = aiDirectory.listFiles((dir, name) -> name.endsWith(".java") && !name.equals("DriverAI.java"));
+        if (files == null) {
+            System.out.println("Error while reading " + aiDirectory);
+            return ais;
+        }
+        Arrays.sort(files);
+        AICompiler aiCompiler = new AICompiler();
+        for (File file : files) {
+            String aiName = file.getName().substring(0, file.getName().length() - 5);
+            try {
+                aiCompiler.compileClass(file, aiName);
+                ais.put(aiName, file);
+            } catch (Exception e) {
+                System.out.println("AI " + aiName + " could not be compiled and is left out of the tournament.");
+            }
+        }
+        return ais;
+    }
+
+    /**
+     * Checks that all given maps can be loaded. Maps which cannot be loaded are left out of the tournament.
+     * (Each worker takes the maps from its MapRepository, so it parses each map only once.)
+     * @param mapNames the names of the map files.
+     * @return the names of the maps which can be loaded.
+     * @see MapRepository#get(String)
+     */
+    private static List<String> loadMaps(String[] mapNames) {
+        List<String> maps = new ArrayList<>();
+        for (String mapName : mapNames) {
+            try {
+                MapRepository.get(mapName);
+                maps.add(mapName);
+            } catch (Exception e) {
+                System.out.println("Map " + mapName + " could not be loaded and is left out of the tournament.");
+            }
+        }
+        return maps;
+    }
+
+    /**
+     * Runs all races in parallel on a fixed pool with the given number of threads.
+     * Each thread of the pool runs its races one by one in its own worker process, so a race which does not finish
+     * in the time limit can be stopped by killing the process. (A new worker is started for the next race then.)
+     * @param ais the files of the AIs mapped by their names.
+     * @param mapNames the names of the maps.
+     * @param threads the number of races which run at the same time.
+     * @param timeout the time limit of one race in seconds.
+     * @param logDirectory the directory for the output of the races. (NULL if the output is to be discarded.)
+     * @return the results of all races in the order of maps and AIs.
+     * @see Worker#race(String, File, String, File, int)
+     */
+    private static List<RaceResult> runRaces(LinkedHashMap<String, File> ais, List<String> mapNames,
+                                             int threads, int timeout, File logDirectory) {
+        List<String> command = workerCommand(threads);
+        ArrayBlockingQueue<Worker> idleWorkers = new ArrayBlockingQueue<>(threads);
+        List<Callable<RaceResult>> races = new ArrayList<>();
+        for (String mapName : mapNames) {
+            for (String aiName : ais.keySet()) {
+                File log = logDirectory == null ? null : new File(logDirectory, aiName + "_" + mapName + ".log");
+                races.add(() -> {
+                    Worker worker = idleWorkers.poll();
+                    if (worker == null) {
+                        worker = new Worker(command);
+                    }
+                    RaceResult result = worker.race(aiName, ais.get(aiName), mapName, log, timeout);
+                    if (worker.isAlive()) {
+                        idleWorkers.add(worker);
+                    }
+                    return result;
+                });
+            }
+        }
+
+        List<RaceResult> results = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (Future<RaceResult> future : pool.invokeAll(races)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            System.out.println("The tournament has been interrupted.");
+            e.printStackTrace();
+        } finally {
+            pool.shutdownNow();
+            for (Worker worker : idleWorkers) {
+                worker.close();
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns the command which starts a worker process. The worker runs in the same Java runtime
+     * with the same class path and the same -X and -D options as the tournament.
+     * The AIs of the worker can use the processors divided by the number of races which run at the same time
+     * as the threads of their search, unless the tournament is given its own number. (see DriverAI.PARALLELISM_PROPERTY)
+     * @param threads the number of races which run at the same time.
+     * @return the command starting a worker.
+     * @see Tournament#runWorker()
+     */
+    private static List<String> workerCommand(int threads) {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-D" + DriverAI.PARALLELISM_PROPERTY + "="
+                + Math.max(1, Runtime.getRuntime().availableProcessors() / threads));
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argument.startsWith("-X") || argument.startsWith("-D")) {
+                command.add(argument);
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Main.class.getName());
+        command.add(WORKER_ARGUMENT);
+        return command;
+    }
+
+    /**
+     * The entry point of a worker process. Reads the races from the standard input (one per line: the file
+     * and the name of the AI, the name of the map and the log file separated by tabs) and runs them one by one.
+     * For each race "READY" is written to the standard output when the AI is compiled and the map is loaded,
+     * then the result of the race. (see Worker)
+     * The output of each race is written into its log (buffered) or discarded.
+     * The compiled AIs and the loaded maps are kept for the next races.
+     * Ends when the standard input is closed.
+     */
+    static void runWorker() {
+        PrintStream replies = System.out;
+        PrintStream errors = System.err;
+        BufferedReader requests = new BufferedReader(new InputStreamReader(System.in));
+        AICompiler aiCompiler = new AICompiler();
+        HashMap<String, Class<?>> compiled = new HashMap<>();
+        try {
+            String line;
+            while ((line = requests.readLine()) != null) {
+                String[] request = line.split("\t", -1);
+                String aiFile = request[0], aiName = request[1], mapName = request[2];
+                RaceResult result = new RaceResult(aiName, mapName);
+                PrintStream log;
+                try {
+                    log = openLog(request[3]);
+                } catch (IOException e) {
+                    result.error = "The log " + request[3] + " could not be created.";
+                    replies.println(Worker.encode(result));
+                    replies.flush();
+                    continue;
+                }
+                System.setOut(log);
+                System.setErr(log);
+                try {
+                    Class<?> ai = compiled.get(aiFile);
+                    if (ai == null) {
+                        ai = aiCompiler.compileClass(new File(aiFile), aiName);
+                        compiled.put(aiFile, ai);
+                    }
+                    MapData map = MapRepository.get(mapName);
+                    replies.println(Worker.READY);
+                    replies.flush();
+                    result = race(aiName, ai, mapName, map);
+                } catch (Exception e) {
+                    result.error = e.toString();
+                } finally {
+                    log.close();
+                }
+                replies.println(Worker.encode(result));
+                replies.flush();
+            }
+        } catch (IOException e) {
+            errors.println("The tournament worker could not read the next race.");
+        }
+    }
+
+    /**
+     * Opens the log of a race.
+     * @param logFile the path of the log file. (Empty if the output is to be discarded.)
+     * @return the buffered stream to which is the output of the race to be written.
+     * @throws IOException thrown if the log cannot be created.
+     */
+    private static PrintStream openLog(String logFile) throws IOException {
+        if (logFile.isEmpty()) {
+            return new PrintStream(new NullOutput());
+        }
+        return new PrintStream(new BufferedOutputStream(new FileOutputStream(logFile)));
+    }
+
+    /**
+     * Runs one race of a new instance of the given AI on the given map.
+     * @param aiName the name of the AI.
+     * @param ai the compiled class of the AI.
+     * @param mapName the name of the map.
+     * @param map the map on which is the race to be run.
+     * @return the result of the race.
+     * @see RaceEngine#runRace()
+     */
+    private static RaceResult race(String aiName, Class<?> ai, String mapName, MapData map) {
+        RaceResult result = new RaceResult(aiName, mapName);
+        long start = System.nanoTime();
+        try {
+            DriverAI driver = Reflect.onClass(ai).create().get();
+            CarState car = new CarState(aiName, aiName, driver);
+            RaceEngine engine = new RaceEngine(map, new CarState[]{car});
+            engine.setVerbose(false);
+            engine.runRace();
+            result.turns = engine.getTurn();
+            result.crashes = car.getCrashes();
+            result.sunk = car.isSunk();
+            result.finished = car.isFinished();
+        } catch (Exception e) {
+            result.error = e.toString();
+        }
+        result.time = (System.nanoTime() - start) / 1000000;
+        return result;
+    }
+
+    /**
+     * Assigns the finishing places to the results. On each map the AIs are ordered by the number of turns
+     * they needed to finish the race. AIs with the same number of turns share the place.
+     * @param results the results of all races.
+     */
+    private static void assignPlaces(List<RaceResult> results) {
+        for (RaceResult result : results) {
+            if (!result.finished) {
+                continue;
+            }
+            result.place = 1;
+            for (RaceResult other : results) {
+                if (other.finished && other.mapName.equals(result.mapName) && other.turns < result.turns) {
+                    result.place++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Prints the table of results.
+     * @param results the results of all races.
+     * @param out the stream to which is the table to be printed.
+     */
+    private static void printResults(List<RaceResult> results, PrintStream out) {
+        out.printf("%-24s %-24s %6s %8s %5s %6s %8s\n", "AI", "MAP", "TURNS", "CRASHES", "SUNK", "PLACE", "TIME(ms)");
+        for (RaceResult r : results) {
+            if (r.error != null) {
+                out.printf("%-24s %-24s ERROR: %s\n", r.aiName, r.mapName, r.error);
+            } else if (r.timedOut) {
+                out.printf("%-24s %-24s %6s %8s %5s %6s %8d (timed out)\n", r.aiName, r.mapName, "-", "-", "-", "DNF", r.time);
+            } else {
+                out.printf("%-24s %-24s %6d %8d %5s %6s %8d\n", r.aiName, r.mapName, r.turns, r.crashes,
+                        r.sunk ? "yes" : "no", r.finished ? Integer.toString(r.place) : "DNF", r.time);
+            }
+        }
+    }
+
+    /**
+     * A stream which discards everything written into it.
+     */
+    private static class NullOutput extends OutputStream {
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+
+    }
+
+    /**
+     * A worker process which runs races one by one. (see Tournament#runWorker())
+     * Reading the replies of the worker is done by a daemon thread, so the time limit of a race can be kept.
+     */
+    private static class Worker {
+
+        /**
+         * The reply of the worker which is sent before each race starts.
+         */
+        private final static String READY = "READY";
+        /**
+         * The first field of the reply with the result of a race.
+         */
+        private final static String RESULT = "RESULT";
+        /**
+         * Put into the replies when the worker process ends.
+         */
+        private final static String END = "END";
+
+        /**
+         * The worker process.
+         */
+        private final Process process;
+        /**
+         * The standard input of the worker to which are the races written.
+         */
+        private final PrintStream requests;
+        /**
+         * The lines written by the worker to its standard output.
+         */
+        private final LinkedBlockingQueue<String> replies = new LinkedBlockingQueue<>();
+        /**
+         * Is false after the worker has been killed or its process has ended.
+         */
+        private boolean alive = true;
+
+        /**
+         * The Worker class constructor. Starts the worker process and the thread reading its replies.
+         * @param command the command starting the worker process.
+         * @throws IOException thrown if the process cannot be started.
+         * @see Tournament#workerCommand()
+         */
+        private Worker(List<String> command) throws IOException {
+            process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            requests = new PrintStream(process.getOutputStream(), true);
+            Thread reader = new Thread(this::readReplies, "Tournament worker reader");
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        /**
+         * Reads the replies of the worker until its process ends.
+         */
+        private void readReplies() {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    replies.add(line);
+                }
+            } catch (IOException e) {
+                // the process has been killed
+            }
+            replies.add(END);
+        }
+
+        /**
+         * Runs one race in the worker and waits for its result at most the given time.
+         * The time limit starts when the AI is compiled and the map is loaded.
+         * If the race does not finish in time, the worker is killed and the race is reported as not finished.
+         * @param aiName the name of the AI.
+         * @param aiFile the java file of the AI.
+         * @param mapName the name of the map.
+         * @param log the file for the output of the race. (NULL if the output is to be discarded.)
+         * @param timeout the time limit of the race in seconds.
+         * @return the result of the race.
+         * @throws InterruptedException thrown if the tournament is interrupted while waiting for the race.
+         */
+        private RaceResult race(String aiName, File aiFile, String mapName, File log, int timeout) throws InterruptedException {
+            requests.println(aiFile.getAbsolutePath() + "\t" + aiName + "\t" + mapName + "\t"
+                    + (log == null ? "" : log.getAbsolutePath()));
+            String reply = replies.take();
+            long start = System.nanoTime();
+            if (reply.equals(READY)) {
+                reply = replies.poll(timeout, TimeUnit.SECONDS);
+            }
+            RaceResult result = new RaceResult(aiName, mapName);
+            if (reply == null) {
+                kill();
+                result.timedOut = true;
+                result.time = (System.nanoTime() - start) / 1000000;
+            } else if (reply.equals(END)) {
+                kill();
+                result.error = "The worker process of the race ended unexpectedly.";
+                result.time = (System.nanoTime() - start) / 1000000;
+            } else {
+                decode(reply, result);
+            }
+            return result;
+        }
+
+        /**
+         * Returns true if the worker can run more races.
+         * @return false if the worker has been killed or its process has ended.
+         */
+        private boolean isAlive() {
+            return alive;
+        }
+
+        /**
+         * Kills the worker process and waits until it ends, so it does not use any processor anymore.
+         * @throws InterruptedException thrown if the tournament is interrupted while waiting for the process.
+         */
+        private void kill() throws InterruptedException {
+            alive = false;
+            process.destroyForcibly();
+            process.waitFor();
+        }
+
+        /**
+         * Closes the standard input of the worker, so the worker ends after its current race.
+         */
+        private void close() {
+            requests.close();
+        }
+
+        /**
+         * Returns the result of a race as a line of the reply of the worker.
+         * @param result the result of the race.
+         * @return the line with the fields of the result separated by tabs.
+         */
+        private static String encode(RaceResult result) {
+            return RESULT + "\t" + result.turns + "\t" + result.crashes + "\t" + result.sunk + "\t" + result.finished
+                    + "\t" + result.time + "\t" + (result.error == null ? "" : result.error.replaceAll("\\s+", " "));
+        }
+
+        /**
+         * Reads the result of a race from a line of the reply of the worker.
+         * @param reply the line with the fields of the result. (see encode())
+         * @param result the result into which are the fields to be read.
+         */
+        private static void decode(String reply, RaceResult result) {
+            String[] fields = reply.split("\t", -1);
+            result.turns = Integer.parseInt(fields[1]);
+            result.crashes = Integer.parseInt(fields[2]);
+            result.sunk = Boolean.parseBoolean(fields[3]);
+            result.finished = Boolean.parseBoolean(fields[4]);
+            result.time = Long.parseLong(fields[5]);
+            result.error = fields[6].isEmpty() ? null : fields[6];
+        }
+
+    }
+
+}
@@ -0,0 +1,364 @@
+package model;
+
+/**
+ * Holds the state of a car in the race and information about its driver.
+ * Contains no GUI code, so it can be used by the race engine without a display.
+ */
+public class CarState {
+    /**
+     * How many turns are to be skipped as punishment for crashing into a wall (or the side of the map).
+     */
+    private static int TURNS_SKIPPED_ON_CRASH = 3;
+
+    /**
+     * The name of the player controlling this car.
+     */
+    private String playerName;
+    /**
+     * The name of the AI controlling this car if there is one.
+     */
+    private String aiName;
+    /**
+     * The AI controlling the car if there is one.
+     */
+    private DriverAI driver;
+    /**
+     * The coordinates at which is the car currently located.
+     */
+    private int x, y;
+    /**
+     * The vector representing the current velocity of the car.
+     */
+    private int vx, vy;
+    /**
+     * Is true if the car has crashed and has to skip turns as punishment.
+     */
+    private boolean crashed;
+    /**
+     * Is true if the car has sunk into water and is no longer able to continue the race.
+     */
+    private boolean sunk;
+    /**
+     * Is true if the car has finished the race.
+     */
+    private boolean finished;
+    /**
+     * One bit for each checkpoint of the map. The bit is set once the car has passed the checkpoint.
+     * (The bit of the checkpoint i is the bit i % 64 of the word i / 64.)
+     */
+    private long[] checkpointsPassed;
+    /**
+     * The bits of all checkpoints of the map. The car has passed all checkpoints once checkpointsPassed is equal to it.
+     */
+    private long[] allCheckpoints;
+    /**
+     * Stores the value of how many turn has the car to wait before continuing the race because it has crashed.
+     */
+    private int crashCountdown;
+    /**
+     * The number of times the car has crashed during the race.
+     */
+    private int crashes;
+
+    /**
+     * The CarState class constructor. Initializes the attributes of the car.
+     * @param playerName the name of the player whose this car is.
+     * @param aiName the name of the AI driving this car. ("HUMAN" if human is driving the car.)
+     * @param driver the instance of the compiled AI which will be driving this car. (NULL if human is driving the car.)
+     * @see DriverAI
+     */
+    public CarState(String playerName, String aiName, DriverAI driver) {
+        this.playerName = playerName;
+        this.aiName = aiName;
+        this.driver = driver;
+        x = 0;
+        y = 0;
+        vx = 0;
+        vy = 0;
+        crashCountdown = 0;
+        crashes = 0;
+        finished = false;
+        resetCheckpoints(0);
+    }
+
+    /**
+     * Sets all checkpoints of the map as not passed by this car.
+     * @param checkpointCount the number of checkpoints on the map.
+     */
+    public void resetCheckpoints(int checkpointCount) {
+        int words = (checkpointCount + 63) / 64;
+        checkpointsPassed = new long[words];
+        allCheckpoints = new long[words];
+        for (int i = 0; i < words; i++) {
+            allCheckpoints[i] = -1L;
+        }
+        if (checkpointCount % 64 != 0) {
+            allCheckpoints[words - 1] = (1L << checkpointCount) - 1;
+        }
+    }
+
+    /**
+     * Saves that the car has passed the given checkpoint.
+     * @param checkpoint the index of the checkpoint.
+     * @return true if the car has not passed the checkpoint before.
+     */
+    public boolean passCheckpoint(int checkpoint) {
+        long bit = 1L << checkpoint;
+        if ((checkpointsPassed[checkpoint >>> 6] & bit) != 0) {
+            return false;
+        }
+        checkpointsPassed[checkpoint >>> 6] |= bit;
+        return true;
+    }
+
+    /**
+     * Returns true if the car has passed the given checkpoint.
+     * @param checkpoint the index of the checkpoint.
+     * @return true if the car has passed the given checkpoint.
+     */
+    public boolean hasPassedCheckpoint(int checkpoint) {
+        return (checkpointsPassed[checkpoint >>> 6] & (1L << checkpoint)) != 0;
+    }
+
+    /**
+     * Returns true if the car has passed all checkpoints of the map.
+     * (Compares one word for every 64 checkpoints, so only one for most maps.)
+     * @return true if the car has passed all checkpoints of the map.
+     */
+    public boolean hasPassedAllCheckpoints() {
+        for (int i = 0; i < allCheckpoints.length; i++) {
+            if (checkpointsPassed[i] != allCheckpoints[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a copy of the bits of the checkpoints the car has passed.
+     * (The bit of the checkpoint i is the bit i % 64 of the word i / 64.)
+     * @return a copy of the bits of the checkpoints the car has passed.
+     */
+    public long[] getCheckpointsPassed() {
+        return checkpointsPassed.clone();
+    }
+
+    /**
+     * Returns one word of the bits of the checkpoints the car has passed without copying them.
+     * @param word the index of the word. (0 for the first 64 checkpoints.)
+     * @return the word of the bits of the checkpoints the car has passed or 0 if there is no such word.
+     */
+    public long getCheckpointsPassed(int word) {
+        return word >= 0 && word < checkpointsPassed.length ? checkpointsPassed[word] : 0L;
+    }
+
+    /**
+     * Sets the coordinates of the car to the given values.
+     * @param x the value to which is the X coordinate of the car to be set.
+     * @param y the value to which is the Y coordinate of the car to be set.
+     */
+    public void setCoordinates(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Changes the velocity vector of the car by adding the acceleration vector given as parameter.
+     * @param a the acceleration vector which is to be added to the velocity vector of the car.
+     * @throws IllegalArgumentException thrown if the length of the int[] given as parameter is not 2
+     *                                  or the values of the int[] are not -1,0 or 1.
+     */
+    public void accelerate(int[] a) {
+        if (a.length != 2) {
+            throw new IllegalArgumentException("Coordinates have to be an int array containing two Integers.");
+        } else {
+            accelerate(a[0], a[1]);
+        }
+    }
+
+    /**
+     * Changes the velocity vector of the car by adding the given acceleration vector to it.
+     * @param ax the X coordinate of the acceleration vector.
+     * @param ay the Y coordinate of the acceleration vector.
+     * @throws IllegalArgumentException thrown if the coordinates of the acceleration vector are not -1,0 or 1.
+     */
+    public void accelerate(int ax, int ay) {
+        if (ax < -1 || ax > 1 || ay < -1 || ay > 1) {
+            throw new IllegalArgumentException("Method accelerate only accepts values of {-1;0;1}.");
+        } else {
+            vx += ax;
+            vy += ay;
+        }
+    }
+
+    /**
+     * Sets the velocity vector of the car to the given values.
+     * @param velocity the values to which is the velocity vector of the car to be set.
+     * @throws IllegalArgumentException thrown if the length of the int[] given as the parameter is not 2.
+     */
+    public void setVelocity(int[] velocity) {
+        if (velocity.length != 2) {
+            throw new IllegalArgumentException("Method setVelocity only accepts an int array with the length of 2 as its argument.");
+        } else {
+            setVelocity(velocity[0], velocity[1]);
+        }
+    }
+
+    /**
+     * Sets the velocity vector of the car to the given values.
+     * @param vx the value to which is the X coordinate of the velocity vector to be set.
+     * @param vy the value to which is the Y coordinate of the velocity vector to be set.
+     */
+    public void setVelocity(int vx, int vy) {
+        this.vx = vx;
+        this.vy = vy;
+    }
+
+    /**
+     * Returns a new array containing the coordinates of the car.
+     * (Used only for the AIs, the engine uses getTileX() and getTileY().)
+     * @return a new array containing the coordinates of the car.
+     */
+    public int[] getCoordinates() {
+        return new int[]{x, y};
+    }
+
+    /**
+     * Returns the X coordinate of the car.
+     * @return the X coordinate of the car.
+     */
+    public int getTileX() {
+        return x;
+    }
+
+    /**
+     * Returns the Y coordinate of the car.
+     * @return the Y coordinate of the car.
+     */
+    public int getTileY() {
+        return y;
+    }
+
+    /**
+     * Returns a new array containing the velocity vector of the car.
+     * (Used only for the AIs, the engine uses getVelX() and getVelY().)
+     * @return a new array containing the velocity vector of the car.
+     */
+    public int[] getVelocity() {
+        return new int[]{vx, vy};
+    }
+
+    /**
+     * Returns the X coordinate of the velocity vector of the car.
+     * @return the X coordinate of the velocity vector of the car.
+     */
+    public int getVelX() {
+        return vx;
+    }
+
+    /**
+     * Returns the Y coordinate of the velocity vector of the car.
+     * @return the Y coordinate of the velocity vector of the car.
+     */
+    public int getVelY() {
+        return vy;
+    }
+
+    /**
+     * Sets the car to "crashed" and start the crash-countdown.
+     */
+    public void crashed() {
+        crashed = true;
+        crashCountdown = TURNS_SKIPPED_ON_CRASH;
+        crashes++;
+    }
+
+    /**
+     * Sets the car to "sunk".
+     */
+    public void sunk() {
+        sunk = true;
+    }
+
+    /**
+     * Sets the car to "finished".
+     */
+    public void finished() {
+        finished = true;
+    }
+
+    /**
+     * Returns true if the car is crashed.
+     * @return true if the car is crashed.
+     */
+    public boolean isCrashed() {
+        return crashed;
+    }
+
+    /**
+     * Returns true if the car is sunk.
+     * @return true if the car is sunk.
+     */
+    public boolean isSunk() {
+        return sunk;
+    }
+
+    /**
+     * Returns true if the car is finished.
+     * @return true if the car is finished.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Decreases crashCountdown by one and sets the car to "not crashed" if the countdown is finished.
+     */
+    public void countdown() {
+        crashCountdown--;
+        if (crashCountdown == 0) {
+            crashed = false;
+        }
+    }
+
+    /**
+     * Returns how many turns has the car still to wait because it has crashed.
+     * @return how many turns has the car still to wait because it has crashed.
+     */
+    public int getCrashCountdown() {
+        return crashCountdown;
+    }
+
+    /**
+     * Returns the number of times the car has crashed during the race.
+     * @return the number of times the car has crashed during the race.
+     */
+    public int getCrashes() {
+        return crashes;
+    }
+
+    /**
+     * Returns the instance of AI assigned to drive this car.
+     * @return the instance of AI assigned to drive this car.
+     */
+    public DriverAI getDriver() {
+        return driver;
+    }
+
+    /**
+     * Returns the name of the player this car has been assigned to.
+     * @return the name of the player this car has been assigned to.
+     */
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    /**
+     * Returns the name of the AI assigned to this car.
+     * @return the name of the AI assigned to this car.
+     */
+    public String getAiName() {
+        return aiName;
+    }
+
+}
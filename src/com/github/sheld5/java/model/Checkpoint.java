@@ -1,52 +1,37 @@
 package model;
 
 /**
- * Represents a checkpoint in the game. Manages all information about the checkpoint.
+ * Represents a checkpoint in the game. Describes which tiles the checkpoint consists of.
+ * Is not modified after it is created. (Which cars have passed the checkpoint is stored in their CarState.)
+ * @see CarState#passCheckpoint(int)
  */
 public class Checkpoint {
 
     /**
-     * Stores coordinates of each tile of the checkpoint.
+     * The index of this checkpoint on the map.
      */
-    private int[][] coordinates;
+    private final int id;
     /**
-     * Each boolean of the array is set to true once the corresponding car has passed the checkpoint.
+     * Stores coordinates of each tile of the checkpoint.
      */
-    private boolean[] carsPassed;
+    private final int[][] coordinates;
 
     /**
-     * The Checkpoint class constructor. Creates new Checkpoint containing one tile.
-     * Initializes boolean[] carPassed with the length equal to the number of cars in the game.
-     * @param x the X coordinate of the first tile to be added to this checkpoint.
-     * @param y the Y coordinate of the first tile to be added to this checkpoint.
-     * @param numberOfCars the number of cars in the game.
+     * The Checkpoint class constructor. Creates new Checkpoint containing the given tiles.
+     * @param id the index of this checkpoint on the map.
+     * @param coordinates the coordinates of all tiles of this checkpoint.
      */
-    public Checkpoint(int x, int y, int numberOfCars) {
-        coordinates = new int[1][2];
-        coordinates[0][0] = x;
-        coordinates[0][1] = y;
-
-        carsPassed = new boolean[numberOfCars];
-        for (boolean b : carsPassed) b = false;
+    public Checkpoint(int id, int[][] coordinates) {
+        this.id = id;
+        this.coordinates = coordinates;
     }
 
     /**
-     * Adds another CHECKPOINT tile to this checkpoint.
-     * @param x the X coordinate of the tile to be added to this checkpoint.
-     * @param y the Y coordinate of the tile to be added to this checkpoint.
+     * Returns the index of this checkpoint on the map.
+     * @return the index of this checkpoint on the map.
      */
-    public void addTile(int x, int y) {
-        int[][] coorTemp;
-            coorTemp = new int[coordinates.length + 1][2];
-
-        for (int i = 0; i < coordinates.length; i++) {
-            coorTemp[i][0] = coordinates[i][0];
-            coorTemp[i][1] = coordinates[i][1];
-        }
-        coorTemp[coorTemp.length - 1][0] = x;
-        coorTemp[coorTemp.length - 1][1] = y;
-
-        coordinates = coorTemp;
+    public int getId() {
+        return id;
     }
 
     /**
@@ -75,36 +60,4 @@ public class Checkpoint {
         return coordinates[tileIndex][1];
     }
 
-    /**
-     * Returns true if the tile with given coordinates belongs to this checkpoint.
-     * @param x the X coordinate of the tile to be checked whether it belongs to this checkpoint.
-     * @param y the Y coordinate of the tile to be checked whether it belongs to this checkpoint.
-     * @return true if the tile with given coordinates belongs to this checkpoint.
-     */
-    public boolean tileBelongsTo(int x, int y) {
-        for (int[] tile : coordinates) {
-            if (tile[0] == x && tile[1] == y) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    /**
-     * Saves that the given car has passed this checkpoint.
-     * @param car the car which has passed this checkpoint.
-     */
-    public void carPassed(int car) {
-        carsPassed[car] = true;
-    }
-
-    /**
-     * Returns true if the given car has passed this checkpoint.
-     * @param car the car which is to be checked whether it has passed this checkpoint.
-     * @return true if the given car has passed this checkpoint.
-     */
-    public boolean getCarPassed(int car) {
-        return carsPassed[car];
-    }
-
 }
@@ -0,0 +1,287 @@
+package model;
+
+import util.MapFormatException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiles maps into a compact binary file and loads them from it.
+ * Loading a compiled map requires no parsing: the file is memory-mapped and the tiles and the checkpoint labels
+ * are read directly from the mapped buffer. The buffer of each valid file is mapped and checked only once and shared
+ * by all maps loaded from the file, so more races running in one JVM do not need more memory.
+ * Files which are not valid are not remembered, so they can be fixed (compiled again) while the application runs.
+ *
+ * The file contains (all numbers are big-endian):
+ * the header (magic number, version, width, height, X and Y coordinates of the start, number of checkpoints
+ * and the number of tiles of each checkpoint) as ints,
+ * then the ordinal of the tile type of each tile as one byte (row by row)
+ * and the index of the checkpoint of each tile as an int (row by row, -1 for tiles which are not checkpoints).
+ */
+public final class CompiledMap {
+
+    /**
+     * The extension of the compiled map files.
+     */
+    public final static String EXTENSION = ".rtm";
+    /**
+     * The first int of each compiled map file. ("RTM" followed by zero)
+     */
+    private final static int MAGIC = 0x52544D00;
+    /**
+     * The version of the format of the compiled map files.
+     */
+    private final static int VERSION = 2;
+    /**
+     * The size of the fixed part of the header in bytes. (The sizes of the checkpoints follow it.)
+     */
+    private final static int HEADER_SIZE = 7 * 4;
+    /**
+     * All tile types indexed by their ordinal.
+     */
+    private final static Tile[] TILES = Tile.values();
+    /**
+     * The checked contents of all loaded valid files mapped by the paths of the files.
+     */
+    private final static ConcurrentHashMap<Path, Contents> files = new ConcurrentHashMap<>();
+
+    /**
+     * CompiledMap only has static methods and cannot be instantiated.
+     */
+    private CompiledMap() {}
+
+    /**
+     * Writes the given map into the given file in the compiled format.
+     * @param map the map which is to be compiled.
+     * @param file the file into which is the compiled map to be written.
+     * @throws IOException thrown if the file cannot be written.
+     */
+    public static void compile(MapData map, Path file) throws IOException {
+        int width = map.getWidthInTiles();
+        int height = map.getHeightInTiles();
+        Checkpoint[] checkpoints = map.getCheckpoints();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 4 * checkpoints.length + 5 * width * height);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(width);
+        buffer.putInt(height);
+        buffer.putInt(map.getStart()[0]);
+        buffer.putInt(map.getStart()[1]);
+        buffer.putInt(checkpoints.length);
+        for (Checkpoint checkpoint : checkpoints) {
+            buffer.putInt(checkpoint.getNoOfTiles());
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                buffer.put((byte) map.getTile(x, y).ordinal());
+            }
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                buffer.putInt(map.getCheckpointId(x, y));
+            }
+        }
+        Files.write(file, buffer.array());
+    }
+
+    /**
+     * Loads the compiled map from the given file. The file is memory-mapped and checked the first time it is loaded.
+     * (A file which is not valid is checked again each time it is loaded.)
+     * @param file the compiled map file.
+     * @return the map read from the file.
+     * @throws IOException thrown if the file cannot be read.
+     * @throws MapFormatException thrown if the file is not a compiled map file, its size does not match its header
+     *                            or its contents are not a valid map.
+     */
+    public static MapData load(Path file) throws IOException, MapFormatException {
+        Path path = file.toAbsolutePath().normalize();
+        Contents contents = files.get(path);
+        if (contents == null) {
+            contents = read(path);
+            Contents previous = files.putIfAbsent(path, contents);
+            if (previous != null) {
+                contents = previous;
+            }
+        }
+
+        int size = contents.width * contents.height;
+        int tilesStart = HEADER_SIZE + 4 * contents.checkpointSizes.length;
+        ByteBuffer tiles = slice(contents.buffer, tilesStart, size);
+        IntBuffer checkpointIds = slice(contents.buffer, tilesStart + size, 4 * size).asIntBuffer();
+        return new MapData(contents.width, contents.height, contents.start.clone(), tiles, checkpointIds,
+                contents.checkpointSizes);
+    }
+
+    /**
+     * Stops sharing the buffer of the given file, so the file is mapped again the next time it is loaded.
+     * (Should be called when the file changes.)
+     * @param file the compiled map file.
+     */
+    public static void release(Path file) {
+        files.remove(file.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Returns a buffer sharing the given part of the contents of the given buffer.
+     * @param buffer the buffer.
+     * @param index the index of the first byte of the part.
+     * @param length the number of bytes of the part.
+     * @return the buffer containing the part.
+     */
+    private static ByteBuffer slice(ByteBuffer buffer, int index, int length) {
+        ByteBuffer part = buffer.duplicate();
+        part.position(index);
+        part.limit(index + length);
+        return part.slice();
+    }
+
+    /**
+     * Maps the whole file into a read-only buffer and checks its contents.
+     * @param file the file which is to be mapped.
+     * @return the checked contents of the file.
+     * @throws IOException thrown if the file cannot be mapped.
+     * @throws MapFormatException thrown if the file is not a valid compiled map.
+     */
+    private static Contents read(Path file) throws IOException, MapFormatException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            System.out.println("Error while loading " + file);
+            throw e;
+        }
+        try {
+            return check(file, buffer);
+        } catch (MapFormatException e) {
+            System.out.println(e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Checks the header and all tiles of the compiled map, so the maps loaded from it can read the buffer
+     * without any further checks: the tile ordinals must be known tile types, there must be exactly one start
+     * at the coordinates in the header and at least one finish, CHECKPOINT tiles (and only them) must have
+     * checkpoint indexes lower than the number of checkpoints and the checkpoints must have the sizes in the header.
+     * @param file the compiled map file. (Used in the messages.)
+     * @param buffer the mapped contents of the file.
+     * @return the checked contents of the file.
+     * @throws MapFormatException thrown if the file is not a valid compiled map.
+     */
+    private static Contents check(Path file, ByteBuffer buffer) throws MapFormatException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new MapFormatException(file + " is not a compiled map.");
+        } else if (buffer.getInt(4) != VERSION) {
+            throw new MapFormatException(file + " has an unsupported version " + buffer.getInt(4) + ".");
+        }
+        int width = buffer.getInt(8);
+        int height = buffer.getInt(12);
+        int startX = buffer.getInt(16);
+        int startY = buffer.getInt(20);
+        int checkpointCount = buffer.getInt(24);
+        long size = (long) width * height;
+        if (width <= 0 || height <= 0 || checkpointCount < 0 || checkpointCount > size
+                || buffer.capacity() != HEADER_SIZE + 4L * checkpointCount + 5 * size) {
+            throw new MapFormatException(file + " has a size which does not match the size of the map.");
+        }
+        if (startX < 0 || startY < 0 || startX >= width || startY >= height) {
+            throw new MapFormatException(MapFormatException.Reason.NO_START,
+                    file + " has the start outside the map at " + startX + "," + startY, startX, startY);
+        }
+
+        int[] checkpointSizes = new int[checkpointCount];
+        for (int i = 0; i < checkpointCount; i++) {
+            checkpointSizes[i] = buffer.getInt(HEADER_SIZE + 4 * i);
+        }
+        int tilesStart = HEADER_SIZE + 4 * checkpointCount;
+        int idsStart = tilesStart + (int) size;
+        int[] counted = new int[checkpointCount];
+        int finishes = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int index = y * width + x;
+                int ordinal = buffer.get(tilesStart + index);
+                if (ordinal < 0 || ordinal >= TILES.length) {
+                    throw new MapFormatException(MapFormatException.Reason.UNKNOWN_TILE,
+                            file + " contains an unknown tile " + ordinal + " at " + x + "," + y, x, y);
+                }
+                Tile tile = TILES[ordinal];
+                if (tile == Tile.START && (x != startX || y != startY)) {
+                    throw new MapFormatException(MapFormatException.Reason.MORE_STARTS,
+                            file + " contains another start at " + x + "," + y, x, y);
+                } else if (tile != Tile.START && x == startX && y == startY) {
+                    throw new MapFormatException(MapFormatException.Reason.NO_START,
+                            file + " has no start at " + x + "," + y, x, y);
+                } else if (tile == Tile.FINISH) {
+                    finishes++;
+                }
+                int id = buffer.getInt(idsStart + 4 * index);
+                if (tile == Tile.CHECKPOINT ? id < 0 || id >= checkpointCount : id != -1) {
+                    throw new MapFormatException(MapFormatException.Reason.INVALID_FILE,
+                            file + " has an invalid checkpoint index " + id + " at " + x + "," + y, x, y);
+                }
+                if (id != -1) {
+                    counted[id]++;
+                }
+            }
+        }
+        if (finishes == 0) {
+            throw new MapFormatException(MapFormatException.Reason.NO_FINISH, file + " has no finish");
+        }
+        for (int i = 0; i < checkpointCount; i++) {
+            if (counted[i] != checkpointSizes[i]) {
+                throw new MapFormatException(file + " has a checkpoint " + i + " with " + counted[i]
+                        + " tiles, but its size in the header is " + checkpointSizes[i] + ".");
+            }
+        }
+        return new Contents(buffer, width, height, new int[]{startX, startY}, checkpointSizes);
+    }
+
+    /**
+     * The mapped buffer of a valid compiled map file and the values read from its header by the check.
+     * Shared by all maps loaded from the file, so it is not modified after it is created.
+     */
+    private final static class Contents {
+
+        /**
+         * The mapped contents of the file. (Only absolute reads are used, so the buffer can be shared.)
+         */
+        private final ByteBuffer buffer;
+        /**
+         * The size of the map.
+         */
+        private final int width, height;
+        /**
+         * The coordinates of the start.
+         */
+        private final int[] start;
+        /**
+         * The number of tiles of each checkpoint.
+         */
+        private final int[] checkpointSizes;
+
+        /**
+         * The Contents class constructor.
+         * @param buffer the mapped contents of the file.
+         * @param width the width of the map in tiles.
+         * @param height the height of the map in tiles.
+         * @param start the coordinates of the start.
+         * @param checkpointSizes the number of tiles of each checkpoint.
+         */
+        private Contents(ByteBuffer buffer, int width, int height, int[] start, int[] checkpointSizes) {
+            this.buffer = buffer;
+            this.width = width;
+            this.height = height;
+            this.start = start;
+            this.checkpointSizes = checkpointSizes;
+        }
+
+    }
+
+}
@@ -7,7 +7,6 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
-import java.awt.image.BufferedImage;
 
 /**
  * Represents one tile of the crosshair used by human players to control their cars.
@@ -49,6 +48,7 @@ public class CrosshairTile extends JPanel implements MouseListener {
         isNextAiMove = false;
         setSize(game.getTileSize(), game.getTileSize());
         setBackground(new Color(0, 0, 0, 0));
+        setOpaque(false);
         addMouseListener(this);
     }
 
@@ -61,21 +61,13 @@ public class CrosshairTile extends JPanel implements MouseListener {
     public void paintComponent(Graphics g) {
         super.paintComponent(g);
         setSize(game.getTileSize(), game.getTileSize());
-        BufferedImage image;
+        boolean highlighted;
         if (game.humanOnTurn() && !game.activeCarOnIce()) {
-            if (mouseOver) {
-                image = Resources.crosshairRed;
-            } else {
-                image = Resources.crosshair;
-            }
+            highlighted = mouseOver;
         } else {
-            if (isNextAiMove) {
-                image = Resources.crosshairRed;
-            } else {
-                image = Resources.crosshair;
-            }
+            highlighted = isNextAiMove;
         }
-        g.drawImage(image.getScaledInstance(game.getTileSize(), game.getTileSize(), Image.SCALE_SMOOTH), 0, 0, null);
+        Resources.drawCrosshair(g, highlighted, 0, 0, game.getTileSize());
     }
 
     /**
@@ -135,24 +127,24 @@ public class CrosshairTile extends JPanel implements MouseListener {
 
     /**
      * Changes the value of the mouseOver to true when the mouse enters this crosshair tile
-     * and calls game.repaint() to update its texture.
+     * and calls repaint() to update its texture.
      * @param e
      */
     @Override
     public void mouseEntered(MouseEvent e) {
         mouseOver = true;
-        game.repaint();
+        repaint();
     }
 
     /**
      * Changes the value of the mouseOver to false when the mouse leaves this crosshair tile
-     * and calls game.repaint() to update its texture.
+     * and calls repaint() to update its texture.
      * @param e
      */
     @Override
     public void mouseExited(MouseEvent e) {
         mouseOver = false;
-        game.repaint();
+        repaint();
     }
 
     /**
@@ -3,9 +3,20 @@ package model;
 /**
  * Interface for writing your own AI for this game.
  * Custom implementations of DriverAI have to be added to the /resources/ai directory.
+ * The game calls the methods taking MapView. By default they pass a copy of the map to the methods taking Tile[][],
+ * which is created only once per race, so the copy should not be modified by the AI.
+ * Override the MapView methods to read the map without copying it.
+ * The MapView given to the AI also shows which checkpoints the car of the AI has passed.
  */
 public interface DriverAI {
 
+    /**
+     * The system property with the number of threads which an AI can use to search in parallel.
+     * The tournament mode sets it for its races, so the races running at the same time share the processors.
+     * (If it is not set, an AI can use as many threads as there are processors.)
+     */
+    String PARALLELISM_PROPERTY = "racetrack.aiParallelism";
+
     /**
      * Is called each turn of the car controlled this AI to determine its next move.
      * Should return a vector of acceleration of the car for the next turn with two coordinates with values -1 or 0 or 1.
@@ -23,4 +34,26 @@ public interface DriverAI {
      */
     void init(Tile[][] map);
 
+    /**
+     * Is called each turn of the car controlled this AI to determine its next move.
+     * Calls drive(int[], int[], Tile[][]) by default.
+     * @param carCoordinates the coordinates of the car controlled by this AI.
+     * @param carVelocity the velocity vector of the car controlled by this AI.
+     * @param map the read-only view of the map on which are the cars racing.
+     * @return the acceleration vector for the car for the next turn.
+     * @see DriverAI#drive(int[], int[], Tile[][])
+     */
+    default int[] drive(int[] carCoordinates, int[] carVelocity, MapView map) {
+        return drive(carCoordinates, carVelocity, map.toArray());
+    }
+
+    /**
+     * Is called once before the first turn. Calls init(Tile[][]) by default.
+     * @param map the read-only view of the map on which are the cars going to be racing.
+     * @see DriverAI#init(Tile[][])
+     */
+    default void init(MapView map) {
+        init(map.toArray());
+    }
+
 }
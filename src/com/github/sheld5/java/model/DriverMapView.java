@@ -0,0 +1,80 @@
+package model;
+
+/**
+ * The view of the map given to one driver.
+ * Delegates all reads to the map (and the reads of the checkpoints passed to the car of the driver) and creates the Tile[][] copy of the map required by the original DriverAI methods
+ * only once, so the driver always gets the same copy instead of a new one each turn.
+ */
+class DriverMapView implements MapView {
+
+    /**
+     * The map which is viewed.
+     */
+    private MapView map;
+    /**
+     * The car of the driver.
+     */
+    private CarState car;
+    /**
+     * The copy of the map created the first time it is needed.
+     */
+    private Tile[][] mapCopy;
+
+    /**
+     * The DriverMapView class constructor.
+     * @param map the map which is to be viewed.
+     * @param car the car of the driver.
+     */
+    DriverMapView(MapView map, CarState car) {
+        this.map = map;
+        this.car = car;
+    }
+
+    @Override
+    public Tile tileAt(int x, int y) {
+        return map.tileAt(x, y);
+    }
+
+    @Override
+    public int tileFlags(int x, int y) {
+        return map.tileFlags(x, y);
+    }
+
+    @Override
+    public int checkpointAt(int x, int y) {
+        return map.checkpointAt(x, y);
+    }
+
+    @Override
+    public int getCheckpointCount() {
+        return map.getCheckpointCount();
+    }
+
+    @Override
+    public long getCheckpointsPassed(int word) {
+        return car.getCheckpointsPassed(word);
+    }
+
+    @Override
+    public int getWidth() {
+        return map.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return map.getHeight();
+    }
+
+    /**
+     * Returns the copy of the map. The copy is created the first time this method is called.
+     * @return the copy of the map.
+     */
+    @Override
+    public Tile[][] toArray() {
+        if (mapCopy == null) {
+            mapCopy = map.toArray();
+        }
+        return mapCopy;
+    }
+
+}
@@ -1,186 +1,153 @@
 package model;
 
 import main.Game;
-import org.xml.sax.SAXException;
-import util.DataReader;
-import util.MapFormatException;
 import util.Resources;
 
 import javax.swing.*;
-import javax.xml.parsers.ParserConfigurationException;
 import java.awt.*;
-import java.io.IOException;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
 
 /**
- * Represents the tiled map in the game.
+ * Displays the tiled map in the game.
  */
 public class Map extends JPanel {
 
+    /**
+     * The maximal size of the rendered background in pixels.
+     * Larger maps are painted tile by tile, only the part which is visible in the viewport of the game.
+     */
+    private final static long MAX_BACKGROUND_PIXELS = 2048 * 2048;
+
     /**
      * The game of which the map is component.
      */
     private Game game;
+    /**
+     * The parsed tiles of the map.
+     */
+    private MapData data;
     /**
      * The size of the map.
      */
     private int tileWidth, tileHeight;
     /**
-     * The coordinates of the start.
+     * The rendered image of the whole map. Is rendered again only when the zoom-level changes
+     * (or when the contents of the VolatileImage are lost).
      */
-    private int[] start;
+    private Image background;
     /**
-     * The array containing the tile types of all tiles.
+     * The tile-size with which is the background rendered.
      */
-    private Tile[][] mapTile;
+    private int backgroundTileSize;
 
     /**
      * The Map class constructor. Initializes attributes of the map.
-     * Uses the DataReader class to get the required data from the map file.
-     * @param mapFileName the name of the map file from which the data for initialization of this map are to be gathered.
-     * @param tileSetFileName the name of the tile-set file which is to be used to 'translate'
-     *                        the data in numbers from the map file to the enum Tile format.
+     * @param data the parsed tiles of the map which is to be displayed.
      * @param game the instance of Game to which this map is going to be added.
-     * @throws MapFormatException thrown if there is no start on the map or there is more than one start
-     *                            or if there is no finish.
-     * @throws ParserConfigurationException
-     * @throws SAXException
-     * @throws IOException
-     * @see DataReader#getMapData(String, String)
+     * @see MapData
      */
-    public Map(String mapFileName, String tileSetFileName, Game game) throws MapFormatException, ParserConfigurationException, SAXException, IOException {
+    public Map(MapData data, Game game) {
         this.game = game;
-        DataReader dr = new DataReader();
-        mapTile = dr.getMapData(mapFileName, tileSetFileName);
-        tileWidth = mapTile[0].length;
-        tileHeight = mapTile.length;
+        this.data = data;
+        tileWidth = data.getWidthInTiles();
+        tileHeight = data.getHeightInTiles();
         setSize(tileWidth * game.getTileSize(), tileHeight * game.getTileSize());
         setBackground(Color.BLACK);
-        findStart();
-        checkForFinish();
     }
 
     /**
-     * Finds the start on the map and saves its coordinates.
-     * @throws MapFormatException thrown if there is no start on the map or there is more than one.
-     */
-    private void findStart() throws MapFormatException {
-        start = new int[2];
-        boolean startFound = false;
-        for (int x = 0; x < tileWidth; x++) {
-            for (int y = 0; y < tileHeight; y++) {
-                if (getTile(x, y) == Tile.START) {
-                    if (!startFound) {
-                        start[0] = x;
-                        start[1] = y;
-                        startFound = true;
-                    } else {
-                        System.out.println("More than one start found on the map");
-                        throw new MapFormatException();
-                    }
-                }
-            }
-        }
-        if (!startFound) {
-            System.out.println("No start found on the map");
-            throw new MapFormatException();
-        }
-    }
-
-    /**
-     * Checks if the map has at least one finish and throws MapFormatException if it does not.
-     * @throws MapFormatException if the map does not have at least one finish.
-     */
-    private void checkForFinish() throws MapFormatException {
-        for (int x = 0; x < tileWidth; x++) {
-            for (int y = 0; y < tileHeight; y++) {
-                if (getTile(x, y) == Tile.FINISH) {
-                    return;
-                }
-            }
-        }
-        throw new MapFormatException();
-    }
-
-    /**
-     * Paints each tile of the map with the corresponding texture.
+     * Paints the map from the rendered background. Renders the background first if it is not ready.
+     * Uses VolatileImage for the background if it is available, so painting the map is a copy in the video memory.
+     * If the background would be too large, paints only the visible tiles instead.
      * @param g
+     * @see Map#renderBackground(int)
+     * @see Map#paintVisibleTiles(Graphics, int)
      */
     @Override
     public void paintComponent(Graphics g) {
         super.paintComponent(g);
         int tileSize = game.getTileSize();
         setSize(tileWidth * tileSize, tileHeight * tileSize);
-        for (int y = 0; y < mapTile.length; y++) {
-            for (int x = 0; x < mapTile[0].length; x++) {
-                switch(mapTile[y][x]) {
-                    case START:
-                        g.drawImage(Resources.tileStart.getScaledInstance(tileSize, tileSize, Image.SCALE_SMOOTH), x * tileSize, y * tileSize, null);
-                        break;
-                    case FINISH:
-                        g.drawImage(Resources.tileFinish.getScaledInstance(tileSize, tileSize, Image.SCALE_SMOOTH), x * tileSize, y * tileSize, null);
-                        break;
-                    case CHECKPOINT:
-                        g.drawImage(Resources.tileCheckpoint.getScaledInstance(tileSize, tileSize, Image.SCALE_SMOOTH), x * tileSize, y * tileSize, null);
-                        break;
-                    case ROAD:
-                        g.drawImage(Resources.tileRoad.getScaledInstance(tileSize, tileSize, Image.SCALE_SMOOTH), x * tileSize, y * tileSize, null);
-                        break;
-                    case GRASS:
-                        g.drawImage(Resources.tileGrass.getScaledInstance(tileSize, tileSize, Image.SCALE_SMOOTH), x * tileSize, y * tileSize, null);
-                        break;
-                    case WATER:
-                        g.drawImage(Resources.tileWater.getScaledInstance(tileSize, tileSize, Image.SCALE_SMOOTH), x * tileSize, y * tileSize, null);
-                        break;
-                    case WALL:
-                        g.drawImage(Resources.tileWall.getScaledInstance(tileSize, tileSize, Image.SCALE_SMOOTH), x * tileSize, y * tileSize, null);
-                        break;
-                    case SAND:
-                        g.drawImage(Resources.tileSand.getScaledInstance(tileSize, tileSize, Image.SCALE_SMOOTH), x * tileSize, y * tileSize, null);
-                        break;
-                    case ICE:
-                        g.drawImage(Resources.tileIce.getScaledInstance(tileSize, tileSize, Image.SCALE_SMOOTH), x * tileSize, y * tileSize, null);
-                        break;
-                }
+        if ((long) tileWidth * tileHeight * tileSize * tileSize > MAX_BACKGROUND_PIXELS) {
+            if (background != null) {
+                background.flush();
+                background = null;
             }
+            paintVisibleTiles(g, tileSize);
+            return;
+        }
+        if (background == null || backgroundTileSize != tileSize) {
+            if (background != null) {
+                background.flush();
+            }
+            background = createVolatileImage(tileWidth * tileSize, tileHeight * tileSize);
+            if (background == null) {
+                background = new BufferedImage(tileWidth * tileSize, tileHeight * tileSize, BufferedImage.TYPE_INT_RGB);
+            }
+            renderBackground(tileSize);
+        }
+        if (background instanceof VolatileImage) {
+            VolatileImage volatileBackground = (VolatileImage) background;
+            do {
+                int status = volatileBackground.validate(getGraphicsConfiguration());
+                if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                    volatileBackground = createVolatileImage(tileWidth * tileSize, tileHeight * tileSize);
+                    background = volatileBackground;
+                    renderBackground(tileSize);
+                } else if (status == VolatileImage.IMAGE_RESTORED) {
+                    renderBackground(tileSize);
+                }
+                g.drawImage(volatileBackground, 0, 0, null);
+            } while (volatileBackground.contentsLost());
+        } else {
+            g.drawImage(background, 0, 0, null);
         }
     }
 
     /**
-     * Returns the type of the tile with given coordinates.
-     * @param x the X coordinate of the tile which is to be examined for its type.
-     * @param y the Y coordinate of the tile which is to be examined for its type.
-     * @return the type of the tile given by the coordinates.
+     * Paints the tiles of the map which intersect the clip of the given graphics.
+     * (The clip is the part of the map visible in the viewport of the game which needs to be repainted.)
+     * @param g the graphics into which are the tiles to be painted.
+     * @param tileSize the size of one tile in pixels.
      */
-    public Tile getTile(int x, int y) {
-        try {
-            return mapTile[y][x];
-        } catch (ArrayIndexOutOfBoundsException e) {
-            return null;
+    private void paintVisibleTiles(Graphics g, int tileSize) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        int firstX = Math.max(0, clip.x / tileSize);
+        int firstY = Math.max(0, clip.y / tileSize);
+        int lastX = Math.min(tileWidth - 1, (clip.x + clip.width - 1) / tileSize);
+        int lastY = Math.min(tileHeight - 1, (clip.y + clip.height - 1) / tileSize);
+        for (int y = firstY; y <= lastY; y++) {
+            for (int x = firstX; x <= lastX; x++) {
+                Resources.drawTile(g, data.getTile(x, y), x * tileSize, y * tileSize, tileSize);
+            }
         }
-
     }
 
     /**
-     * Returns the type of the tile with given coordinates.
-     * @param coordinates the coordinates of the tile which is to be examined for its type.
-     * @return the type of the tile given by the coordinates.
+     * Paints each tile of the map with the corresponding texture into the background image.
+     * @param tileSize the size of one tile in pixels.
      */
-    public Tile getTile(int[] coordinates) {
-        if (coordinates.length != 2) {
-            throw new IllegalArgumentException("Method getTile only accepts two ints or an int array with the length of 2 as argument.");
-        } else {
-            return mapTile[coordinates[1]][coordinates[0]];
+    private void renderBackground(int tileSize) {
+        Graphics g = background.getGraphics();
+        for (int y = 0; y < tileHeight; y++) {
+            for (int x = 0; x < tileWidth; x++) {
+                Resources.drawTile(g, data.getTile(x, y), x * tileSize, y * tileSize, tileSize);
+            }
         }
+        g.dispose();
+        backgroundTileSize = tileSize;
     }
 
     /**
-     * Returns true if the tile with given coordinates is rideable (anything but WALL) and is not outside the map.
-     * @param x the X coordinate of the tile which is to be examined for its rideability.
-     * @param y the Y coordinate of the tile which is to be examined for its rideability.
-     * @return true if the tile with given coordinates id rideable.
+     * Returns the parsed tiles of the map.
+     * @return the parsed tiles of the map.
      */
-    public boolean isTileRideable(int x, int y) {
-        return (getTile(x, y) != Tile.WALL) && (getTile(x, y) != null);
+    public MapData getData() {
+        return data;
     }
 
     /**
@@ -199,26 +166,4 @@ public class Map extends JPanel {
         return tileHeight;
     }
 
-    /**
-     * Returns a deep copy of the 2d Tile array representing the map.
-     * @return a deep copy of the 2d Tile array representing the map.
-     */
-    public Tile[][] getMapCopy() {
-        Tile[][] mapCopy = new Tile[mapTile[0].length][mapTile.length];
-        for (int x = 0; x < mapTile[0].length; x++) {
-            for (int y = 0; y < mapTile.length; y++) {
-                mapCopy[x][y] = mapTile[y][x];
-            }
-        }
-        return mapCopy;
-    }
-
-    /**
-     * Returns the coordinates of the start.
-     * @return the coordinates of the start.
-     */
-    public int[] getStart() {
-        return start;
-    }
-
 }
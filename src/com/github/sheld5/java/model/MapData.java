@@ -0,0 +1,407 @@
+package model;
+
+import org.xml.sax.SAXException;
+import util.DataReader;
+import util.MapFormatException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+
+/**
+ * Holds the parsed tiles of a map. Contains no GUI code, so it can be used by the race engine without a display.
+ * Is not modified after it is created, so it can be shared by more races.
+ * The tiles and the checkpoint labels are kept in buffers, so a compiled map can be read directly
+ * from the memory-mapped file. (see CompiledMap)
+ */
+public class MapData implements MapView {
+
+    /**
+     * All tile types indexed by their ordinal.
+     */
+    private final static Tile[] TILES = Tile.values();
+
+    /**
+     * The size of the map.
+     */
+    private int tileWidth, tileHeight;
+    /**
+     * The coordinates of the start.
+     */
+    private int[] start;
+    /**
+     * The ordinals of the tile types of all tiles. The tile (x;y) has the index y * tileWidth + x.
+     * (Only absolute reads are used, so the buffer can be shared.)
+     */
+    private ByteBuffer tiles;
+    /**
+     * The width of the bitsets. (The map is surrounded by a border of walls one tile wide.)
+     */
+    private int paddedWidth;
+    /**
+     * One bit for each tile of the map and its border for each type of tile (see MapView.tileFlags()).
+     * The bit of the tile (x;y) has the index (y + 1) * paddedWidth + x + 1.
+     */
+    private long[] wall, water, sand, ice, checkpoint, finish;
+    /**
+     * The index of the checkpoint to which each tile belongs. (-1 if the tile is not a CHECKPOINT tile.)
+     * The id of the tile (x;y) has the index y * tileWidth + x.
+     */
+    private IntBuffer checkpointIds;
+    /**
+     * The number of checkpoints on the map.
+     */
+    private int checkpointCount;
+    /**
+     * The number of tiles of each checkpoint indexed by the indexes of the checkpoints.
+     */
+    private int[] checkpointSizes;
+    /**
+     * The checkpoints on the map. (Created the first time they are needed.)
+     */
+    private Checkpoint[] checkpoints;
+    /**
+     * The information about the map gathered when the map was checked.
+     * (Created the first time it is needed for compiled maps, which are checked by CompiledMap.)
+     */
+    private MapMetadata metadata;
+
+    /**
+     * The MapData class constructor. Uses the DataReader class to get the required data from the map file.
+     * @param mapFileName the name of the map file from which the data for initialization of this map are to be gathered.
+     * @param tileSetFileName the name of the tile-set file which is to be used to 'translate'
+     *                        the data in numbers from the map file to the enum Tile format.
+     * @throws MapFormatException thrown if there is no start on the map or there is more than one start
+     *                            or if there is no finish or if the map contains a tile which is not in the tile-set.
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     * @throws IOException
+     * @see DataReader#getMapData(String, String)
+     */
+    public MapData(String mapFileName, String tileSetFileName) throws MapFormatException, ParserConfigurationException, SAXException, IOException {
+        this(new DataReader().getMapData(mapFileName, tileSetFileName));
+    }
+
+    /**
+     * The MapData class constructor. Uses the DataReader class to get the required data from the map file
+     * in the file system.
+     * @param mapFile the map file from which the data for initialization of this map are to be gathered.
+     * @param tileSetFile the tile-set file which is to be used to 'translate'
+     *                    the data in numbers from the map file to the enum Tile format.
+     * @throws MapFormatException thrown if there is no start on the map or there is more than one start
+     *                            or if there is no finish or if the map contains a tile which is not in the tile-set.
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     * @throws IOException
+     * @see DataReader#getMapData(File, File)
+     */
+    public MapData(File mapFile, File tileSetFile) throws MapFormatException, ParserConfigurationException, SAXException, IOException {
+        this(new DataReader().getMapData(mapFile, tileSetFile));
+    }
+
+    /**
+     * The MapData class constructor. Initializes the map from the given tiles.
+     * @param mapTile the tile types of all tiles of the map. (The first index selects the row, the second one the column.)
+     * @throws MapFormatException thrown if there is no start on the map or there is more than one start
+     *                            or if there is no finish.
+     */
+    public MapData(Tile[][] mapTile) throws MapFormatException {
+        tileWidth = mapTile[0].length;
+        tileHeight = mapTile.length;
+        byte[] ordinals = new byte[tileWidth * tileHeight];
+        for (int y = 0; y < tileHeight; y++) {
+            for (int x = 0; x < tileWidth; x++) {
+                ordinals[y * tileWidth + x] = (byte) mapTile[y][x].ordinal();
+            }
+        }
+        tiles = ByteBuffer.wrap(ordinals);
+        metadata = new MapMetadata(tiles, tileWidth, tileHeight);
+        start = metadata.getStart();
+        checkpointIds = IntBuffer.wrap(metadata.getCheckpointIds());
+        checkpointCount = metadata.getCheckpointCount();
+        checkpointSizes = new int[checkpointCount];
+        for (int i = 0; i < checkpointCount; i++) {
+            checkpointSizes[i] = metadata.getCheckpointSize(i);
+        }
+        initBitsets();
+    }
+
+    /**
+     * The MapData class constructor. Initializes the map from the data of a compiled map.
+     * The data have already been checked by CompiledMap, so the tiles are not checked again.
+     * @param tileWidth the width of the map in tiles.
+     * @param tileHeight the height of the map in tiles.
+     * @param start the coordinates of the start.
+     * @param tiles the ordinals of the tile types of all tiles. (row by row)
+     * @param checkpointIds the index of the checkpoint of each tile. (row by row)
+     * @param checkpointSizes the number of tiles of each checkpoint.
+     * @see CompiledMap#load(Path)
+     */
+    MapData(int tileWidth, int tileHeight, int[] start, ByteBuffer tiles, IntBuffer checkpointIds, int[] checkpointSizes) {
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.start = start;
+        this.tiles = tiles;
+        this.checkpointIds = checkpointIds;
+        this.checkpointSizes = checkpointSizes;
+        checkpointCount = checkpointSizes.length;
+        initBitsets();
+    }
+
+    /**
+     * Creates the bitset of each type of tile. The tiles of the border around the map are set as walls,
+     * so the cars driving out of the map crash into them without any bounds checking.
+     */
+    private void initBitsets() {
+        paddedWidth = tileWidth + 2;
+        int words = (paddedWidth * (tileHeight + 2) + 63) / 64;
+        wall = new long[words];
+        water = new long[words];
+        sand = new long[words];
+        ice = new long[words];
+        checkpoint = new long[words];
+        finish = new long[words];
+        for (int y = -1; y <= tileHeight; y++) {
+            for (int x = -1; x <= tileWidth; x++) {
+                Tile tile = getTile(x, y);
+                int index = (y + 1) * paddedWidth + x + 1;
+                if (tile == null || tile == Tile.WALL) {
+                    setBit(wall, index);
+                } else if (tile == Tile.WATER) {
+                    setBit(water, index);
+                } else if (tile == Tile.SAND) {
+                    setBit(sand, index);
+                } else if (tile == Tile.ICE) {
+                    setBit(ice, index);
+                } else if (tile == Tile.CHECKPOINT) {
+                    setBit(checkpoint, index);
+                } else if (tile == Tile.FINISH) {
+                    setBit(finish, index);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the bit with the given index in the bitset.
+     * @param bits the bitset.
+     * @param index the index of the bit.
+     */
+    private static void setBit(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * Returns the type of the tile with given coordinates.
+     * @param x the X coordinate of the tile which is to be examined for its type.
+     * @param y the Y coordinate of the tile which is to be examined for its type.
+     * @return the type of the tile given by the coordinates or null if the coordinates are outside the map.
+     */
+    public Tile getTile(int x, int y) {
+        if (x < 0 || y < 0 || x >= tileWidth || y >= tileHeight) {
+            return null;
+        }
+        return TILES[tiles.get(y * tileWidth + x)];
+    }
+
+    @Override
+    public Tile tileAt(int x, int y) {
+        return getTile(x, y);
+    }
+
+    /**
+     * Returns the flags of the type of the tile with given coordinates read from the bitsets.
+     * The tiles next to the map are read from the border. Only coordinates further from the map are checked
+     * (so AIs cannot read outside the bitsets), the cars in the race never get there as they crash into the border first.
+     * @param x the X coordinate of the tile.
+     * @param y the Y coordinate of the tile.
+     * @return the flags of the tile given by the coordinates.
+     * @see MapView#tileFlags(int, int)
+     */
+    @Override
+    public int tileFlags(int x, int y) {
+        if (x < -1 || y < -1 || x > tileWidth || y > tileHeight) {
+            return WALL;
+        }
+        int index = (y + 1) * paddedWidth + x + 1;
+        int word = index >>> 6;
+        long bit = 1L << index;
+        int flags = 0;
+        if ((wall[word] & bit) != 0) {
+            flags |= WALL;
+        }
+        if ((water[word] & bit) != 0) {
+            flags |= WATER;
+        }
+        if ((sand[word] & bit) != 0) {
+            flags |= SAND;
+        }
+        if ((ice[word] & bit) != 0) {
+            flags |= ICE;
+        }
+        if ((checkpoint[word] & bit) != 0) {
+            flags |= CHECKPOINT;
+        }
+        if ((finish[word] & bit) != 0) {
+            flags |= FINISH;
+        }
+        return flags;
+    }
+
+    /**
+     * Returns the type of the tile with given coordinates.
+     * @param coordinates the coordinates of the tile which is to be examined for its type.
+     * @return the type of the tile given by the coordinates.
+     */
+    public Tile getTile(int[] coordinates) {
+        if (coordinates.length != 2) {
+            throw new IllegalArgumentException("Method getTile only accepts two ints or an int array with the length of 2 as argument.");
+        } else {
+            return getTile(coordinates[0], coordinates[1]);
+        }
+    }
+
+    /**
+     * Returns the index of the checkpoint to which the tile with given coordinates belongs.
+     * @param x the X coordinate of the tile.
+     * @param y the Y coordinate of the tile.
+     * @return the index of the checkpoint or -1 if the tile is not a CHECKPOINT tile or is outside the map.
+     */
+    public int getCheckpointId(int x, int y) {
+        if (x < 0 || y < 0 || x >= tileWidth || y >= tileHeight) {
+            return -1;
+        }
+        return checkpointIds.get(y * tileWidth + x);
+    }
+
+    @Override
+    public int checkpointAt(int x, int y) {
+        return getCheckpointId(x, y);
+    }
+
+    @Override
+    public int getCheckpointCount() {
+        return checkpointCount;
+    }
+
+    /**
+     * Returns the information about the map gathered when the map was checked.
+     * The metadata of a compiled map are gathered the first time they are needed.
+     * @return the metadata of the map.
+     * @see MapMetadata
+     */
+    public synchronized MapMetadata getMetadata() {
+        if (metadata == null) {
+            try {
+                metadata = new MapMetadata(tiles, tileWidth, tileHeight);
+            } catch (MapFormatException e) {
+                // compiled maps are checked for the start and the finish when they are loaded
+                throw new IllegalStateException(e);
+            }
+        }
+        return metadata;
+    }
+
+    /**
+     * Returns the checkpoints on the map created from the checkpoint labels of the tiles.
+     * (More CHECKPOINT tiles next to each other are treated as one checkpoint.)
+     * The checkpoints are created only once and the returned array is shared, so it must not be modified.
+     * @return the checkpoints ordered by their indexes.
+     * @see Checkpoint
+     * @see MapData#getCheckpointId(int, int)
+     */
+    public synchronized Checkpoint[] getCheckpoints() {
+        if (checkpoints != null) {
+            return checkpoints;
+        }
+
+        int[] noOfTiles = new int[checkpointCount];
+        int[][][] coordinates = new int[checkpointCount][][];
+        for (int i = 0; i < checkpointCount; i++) {
+            coordinates[i] = new int[checkpointSizes[i]][];
+        }
+        for (int y = 0; y < tileHeight; y++) {
+            for (int x = 0; x < tileWidth; x++) {
+                int id = getCheckpointId(x, y);
+                if (id != -1) {
+                    coordinates[id][noOfTiles[id]++] = new int[]{x, y};
+                }
+            }
+        }
+
+        Checkpoint[] created = new Checkpoint[coordinates.length];
+        for (int i = 0; i < created.length; i++) {
+            created[i] = new Checkpoint(i, coordinates[i]);
+        }
+        checkpoints = created;
+        return checkpoints;
+    }
+
+    /**
+     * Returns true if the tile with given coordinates is rideable (anything but WALL) and is not outside the map.
+     * @param x the X coordinate of the tile which is to be examined for its rideability.
+     * @param y the Y coordinate of the tile which is to be examined for its rideability.
+     * @return true if the tile with given coordinates id rideable.
+     */
+    public boolean isTileRideable(int x, int y) {
+        return (tileFlags(x, y) & WALL) == 0;
+    }
+
+    /**
+     * Returns the width of the map in tiles.
+     * @return the width of the map in tiles.
+     */
+    public int getWidthInTiles() {
+        return tileWidth;
+    }
+
+    /**
+     * Returns the height of the map in tiles.
+     * @return the height of the map in tiles.
+     */
+    public int getHeightInTiles() {
+        return tileHeight;
+    }
+
+    @Override
+    public int getWidth() {
+        return tileWidth;
+    }
+
+    @Override
+    public int getHeight() {
+        return tileHeight;
+    }
+
+    @Override
+    public Tile[][] toArray() {
+        return getMapCopy();
+    }
+
+    /**
+     * Returns a deep copy of the 2d Tile array representing the map.
+     * (The first index of the copy selects the column, the second one the row.)
+     * @return a deep copy of the 2d Tile array representing the map.
+     */
+    public Tile[][] getMapCopy() {
+        Tile[][] mapCopy = new Tile[tileWidth][tileHeight];
+        for (int x = 0; x < tileWidth; x++) {
+            for (int y = 0; y < tileHeight; y++) {
+                mapCopy[x][y] = getTile(x, y);
+            }
+        }
+        return mapCopy;
+    }
+
+    /**
+     * Returns the coordinates of the start.
+     * @return the coordinates of the start.
+     */
+    public int[] getStart() {
+        return start;
+    }
+
+}
@@ -0,0 +1,301 @@
+package model;
+
+import util.MapFormatException;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The information about a map gathered in one pass over all its tiles:
+ * the start, the finishes, the checkpoints, the number of tiles of each type
+ * and the bounding box of the rideable tiles (anything but WALL).
+ * The tiles are visited row by row (in the order in which they are stored). The checkpoints are found
+ * by labelling connected components of CHECKPOINT tiles with a union-find structure during the same pass.
+ * MapMetadata is not modified after it is created.
+ */
+public final class MapMetadata {
+
+    /**
+     * All tile types indexed by their ordinals.
+     */
+    private final static Tile[] TILES = Tile.values();
+    /**
+     * The offsets of the neighbours of a tile which are visited before the tile. (left, up-left, up, up-right)
+     */
+    private final static int[] NEIGHBOUR_X = {-1, -1, 0, 1}, NEIGHBOUR_Y = {0, -1, -1, -1};
+
+    /**
+     * The coordinates of the start.
+     */
+    private final int[] start;
+    /**
+     * The coordinates of all FINISH tiles. (row by row)
+     */
+    private final int[][] finishes;
+    /**
+     * The number of tiles of each type indexed by the ordinals of the types.
+     */
+    private final int[] tileCounts;
+    /**
+     * The bounding box of the rideable tiles.
+     */
+    private final int minX, minY, maxX, maxY;
+    /**
+     * The index of the checkpoint to which each tile belongs. (-1 if the tile is not a CHECKPOINT tile.)
+     * The id of the tile (x;y) has the index y * width + x.
+     */
+    private final int[] checkpointIds;
+    /**
+     * The number of tiles of each checkpoint indexed by the indexes of the checkpoints.
+     */
+    private final int[] checkpointSizes;
+
+    /**
+     * The MapMetadata class constructor. Visits all tiles of the map once and checks the map.
+     * CHECKPOINT tiles next to each other (including diagonally) belong to the same checkpoint.
+     * The checkpoints are numbered in the order in which their first tiles are found column by column
+     * (the same order the race engine has always used).
+     * @param tiles the ordinals of the tile types of all tiles. (row by row)
+     * @param width the width of the map in tiles.
+     * @param height the height of the map in tiles.
+     * @throws MapFormatException thrown if there is no start on the map or there is more than one start
+     *                            or if there is no finish.
+     */
+    MapMetadata(ByteBuffer tiles, int width, int height) throws MapFormatException {
+        int[] start = null;
+        ArrayList<int[]> finishes = new ArrayList<>();
+        tileCounts = new int[TILES.length];
+        int minX = width, minY = height, maxX = -1, maxY = -1;
+
+        int[] labels = new int[width * height];
+        int[] parent = new int[16];
+        int[] firstTile = new int[16];
+        int labelCount = 0;
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int index = y * width + x;
+                Tile tile = TILES[tiles.get(index)];
+                tileCounts[tile.ordinal()]++;
+                labels[index] = -1;
+
+                if (tile != Tile.WALL) {
+                    minX = Math.min(minX, x);
+                    minY = Math.min(minY, y);
+                    maxX = Math.max(maxX, x);
+                    maxY = Math.max(maxY, y);
+                }
+
+                if (tile == Tile.START) {
+                    if (start != null) {
+                        String message = "More than one start found on the map at " + x + "," + y;
+                        System.out.println(message);
+                        throw new MapFormatException(MapFormatException.Reason.MORE_STARTS, message, x, y);
+                    }
+                    start = new int[]{x, y};
+                } else if (tile == Tile.FINISH) {
+                    finishes.add(new int[]{x, y});
+                } else if (tile == Tile.CHECKPOINT) {
+                    int label = -1;
+                    for (int i = 0; i < NEIGHBOUR_X.length; i++) {
+                        int neighbourX = x + NEIGHBOUR_X[i];
+                        int neighbourY = y + NEIGHBOUR_Y[i];
+                        if (neighbourX < 0 || neighbourY < 0 || neighbourX >= width) {
+                            continue;
+                        }
+                        int neighbour = labels[neighbourY * width + neighbourX];
+                        if (neighbour == -1) {
+                            continue;
+                        }
+                        if (label == -1) {
+                            label = find(parent, neighbour);
+                        } else {
+                            label = union(parent, firstTile, label, neighbour);
+                        }
+                    }
+                    int columnIndex = x * height + y;
+                    if (label == -1) {
+                        if (labelCount == parent.length) {
+                            parent = Arrays.copyOf(parent, 2 * labelCount);
+                            firstTile = Arrays.copyOf(firstTile, 2 * labelCount);
+                        }
+                        label = labelCount++;
+                        parent[label] = label;
+                        firstTile[label] = columnIndex;
+                    } else {
+                        firstTile[label] = Math.min(firstTile[label], columnIndex);
+                    }
+                    labels[index] = label;
+                }
+            }
+        }
+
+        if (start == null) {
+            String message = "No start found on the map";
+            System.out.println(message);
+            throw new MapFormatException(MapFormatException.Reason.NO_START, message);
+        }
+        if (finishes.isEmpty()) {
+            String message = "No finish found on the map";
+            System.out.println(message);
+            throw new MapFormatException(MapFormatException.Reason.NO_FINISH, message);
+        }
+
+        // number the checkpoints by their first tiles in the column-by-column order
+        long[] roots = new long[labelCount];
+        int rootCount = 0;
+        for (int label = 0; label < labelCount; label++) {
+            if (parent[label] == label) {
+                roots[rootCount++] = ((long) firstTile[label] << 32) | label;
+            }
+        }
+        Arrays.sort(roots, 0, rootCount);
+        int[] ids = new int[labelCount];
+        for (int i = 0; i < rootCount; i++) {
+            ids[(int) roots[i]] = i;
+        }
+        checkpointSizes = new int[rootCount];
+        for (int index = 0; index < labels.length; index++) {
+            if (labels[index] != -1) {
+                labels[index] = ids[find(parent, labels[index])];
+                checkpointSizes[labels[index]]++;
+            }
+        }
+
+        this.start = start;
+        this.finishes = finishes.toArray(new int[0][]);
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.checkpointIds = labels;
+    }
+
+    /**
+     * Finds the root of the label in the union-find structure and shortens the path to it.
+     * @param parent the parent of each label.
+     * @param label the label.
+     * @return the root of the label.
+     */
+    private static int find(int[] parent, int label) {
+        while (parent[label] != label) {
+            parent[label] = parent[parent[label]];
+            label = parent[label];
+        }
+        return label;
+    }
+
+    /**
+     * Joins the components of the two labels in the union-find structure.
+     * @param parent the parent of each label.
+     * @param firstTile the first tile (in the column-by-column order) of each root.
+     * @param root the root of the first label.
+     * @param label the second label.
+     * @return the root of the joined component.
+     */
+    private static int union(int[] parent, int[] firstTile, int root, int label) {
+        int other = find(parent, label);
+        if (other == root) {
+            return root;
+        }
+        int joined = Math.min(root, other);
+        int removed = Math.max(root, other);
+        parent[removed] = joined;
+        firstTile[joined] = Math.min(firstTile[joined], firstTile[removed]);
+        return joined;
+    }
+
+    /**
+     * Returns the coordinates of the start.
+     * @return the coordinates of the start.
+     */
+    public int[] getStart() {
+        return start.clone();
+    }
+
+    /**
+     * Returns the number of FINISH tiles.
+     * @return the number of FINISH tiles.
+     */
+    public int getFinishCount() {
+        return finishes.length;
+    }
+
+    /**
+     * Returns the coordinates of the FINISH tile with the given index.
+     * @param i the index of the FINISH tile. (The tiles are ordered row by row.)
+     * @return the coordinates of the FINISH tile.
+     */
+    public int[] getFinish(int i) {
+        return finishes[i].clone();
+    }
+
+    /**
+     * Returns the number of tiles of the given type.
+     * @param tile the tile type.
+     * @return the number of tiles of the given type.
+     */
+    public int getTileCount(Tile tile) {
+        return tileCounts[tile.ordinal()];
+    }
+
+    /**
+     * Returns the number of checkpoints.
+     * @return the number of checkpoints.
+     */
+    public int getCheckpointCount() {
+        return checkpointSizes.length;
+    }
+
+    /**
+     * Returns the number of tiles of the checkpoint with the given index.
+     * @param id the index of the checkpoint.
+     * @return the number of tiles of the checkpoint.
+     */
+    public int getCheckpointSize(int id) {
+        return checkpointSizes[id];
+    }
+
+    /**
+     * Returns the index of the checkpoint to which each tile belongs. (-1 if the tile is not a CHECKPOINT tile.)
+     * The returned array is shared and must not be modified.
+     * @return the indexes of the checkpoints of all tiles. (row by row)
+     */
+    int[] getCheckpointIds() {
+        return checkpointIds;
+    }
+
+    /**
+     * Returns the smallest X coordinate of a rideable tile.
+     * @return the left side of the bounding box of the rideable tiles.
+     */
+    public int getMinX() {
+        return minX;
+    }
+
+    /**
+     * Returns the smallest Y coordinate of a rideable tile.
+     * @return the top side of the bounding box of the rideable tiles.
+     */
+    public int getMinY() {
+        return minY;
+    }
+
+    /**
+     * Returns the largest X coordinate of a rideable tile.
+     * @return the right side of the bounding box of the rideable tiles.
+     */
+    public int getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * Returns the largest Y coordinate of a rideable tile.
+     * @return the bottom side of the bounding box of the rideable tiles.
+     */
+    public int getMaxY() {
+        return maxY;
+    }
+
+}
@@ -0,0 +1,88 @@
+package model;
+
+/**
+ * Read-only view of the map on which are the cars racing.
+ * The same view is used for the whole race, so reading the map does not require copying it.
+ * The view given to a driver also shows the checkpoints passed by the car of the driver.
+ */
+public interface MapView {
+
+    /**
+     * The flags of the tile types returned by tileFlags(). A tile outside the map has only the WALL flag.
+     */
+    int WALL = 1, WATER = 2, SAND = 4, ICE = 8, CHECKPOINT = 16, FINISH = 32;
+
+    /**
+     * Returns the type of the tile with given coordinates.
+     * @param x the X coordinate of the tile.
+     * @param y the Y coordinate of the tile.
+     * @return the type of the tile given by the coordinates or null if the coordinates are outside the map.
+     */
+    Tile tileAt(int x, int y);
+
+    /**
+     * Returns the flags of the type of the tile with given coordinates. (WALL, WATER, SAND, ICE, CHECKPOINT or FINISH)
+     * Tiles outside the map are walls. Other tiles (GRASS, ROAD, START) have no flags.
+     * @param x the X coordinate of the tile.
+     * @param y the Y coordinate of the tile.
+     * @return the flags of the tile given by the coordinates.
+     */
+    int tileFlags(int x, int y);
+
+    /**
+     * Returns the index of the checkpoint to which the tile with given coordinates belongs.
+     * CHECKPOINT tiles next to each other (including diagonally) belong to the same checkpoint.
+     * @param x the X coordinate of the tile.
+     * @param y the Y coordinate of the tile.
+     * @return the index of the checkpoint or -1 if the tile is not a CHECKPOINT tile or is outside the map.
+     */
+    int checkpointAt(int x, int y);
+
+    /**
+     * Returns the number of checkpoints on the map. (The checkpoints are indexed from 0 to this number - 1.)
+     * @return the number of checkpoints on the map.
+     */
+    int getCheckpointCount();
+
+    /**
+     * Returns one word of the bits of the checkpoints passed by the car of the driver to whom this view was given.
+     * The bits are kept in the same form as in CarState. (The bit of the checkpoint i is the bit i % 64 of the word i / 64.)
+     * Views which do not belong to a driver (e.g. the map itself) return 0.
+     * @param word the index of the word. (0 for the first 64 checkpoints.)
+     * @return the word of the bits of the checkpoints passed by the car or 0 if there is no such word.
+     * @see CarState#getCheckpointsPassed(int)
+     */
+    default long getCheckpointsPassed(int word) {
+        return 0L;
+    }
+
+    /**
+     * Returns true if the car of the driver to whom this view was given has passed the given checkpoint.
+     * @param checkpoint the index of the checkpoint.
+     * @return true if the car has passed the checkpoint.
+     * @see MapView#getCheckpointsPassed(int)
+     */
+    default boolean hasPassedCheckpoint(int checkpoint) {
+        return (getCheckpointsPassed(checkpoint >>> 6) & (1L << checkpoint)) != 0;
+    }
+
+    /**
+     * Returns the width of the map in tiles.
+     * @return the width of the map in tiles.
+     */
+    int getWidth();
+
+    /**
+     * Returns the height of the map in tiles.
+     * @return the height of the map in tiles.
+     */
+    int getHeight();
+
+    /**
+     * Returns the map as a 2d Tile array in the format used by the original DriverAI methods.
+     * (The first index selects the column, the second one the row.)
+     * @return the map as a 2d Tile array.
+     */
+    Tile[][] toArray();
+
+}
@@ -0,0 +1,496 @@
+package model;
+
+/**
+ * Manages the race itself. (the turn cycle of the race and all game rules)
+ * Contains no GUI code, so races can be simulated without a display.
+ * The GUI (see main.Game) only displays the state of the engine and asks it to make the moves.
+ */
+public class RaceEngine {
+
+    /**
+     * The maximum of turns players can take before being DQed.
+     */
+    public final static int TURN_MAX = 500;
+    /**
+     * The move returned by nextAiMove() if the AI returned an invalid move or threw an exception.
+     * (Shared by all calls, so it must not be modified.)
+     */
+    private final static int[] NO_MOVE = {0,0};
+
+    /**
+     * The map on which are the cars racing.
+     */
+    private MapData map;
+    /**
+     * An array containing the states of all cars.
+     */
+    private CarState[] cars;
+    /**
+     * The views of the map given to the drivers of the cars. (One for each car.)
+     */
+    private MapView[] mapViews;
+    /**
+     * An array containing all Checkpoints.
+     */
+    private Checkpoint[] checkpoints;
+    /**
+     * The index of the car currently on turn.
+     */
+    private int activeCarIndex;
+    /**
+     * The car currently on turn.
+     */
+    private CarState activeCar;
+    /**
+     * Used to stop the car from moving further. (E.g. after it crashed into a wall.)
+     */
+    private boolean stop;
+    /**
+     * Stores the current turn.
+     */
+    private int turn;
+    /**
+     * The number of cars which have finished the race.
+     */
+    private int carsFinished;
+    /**
+     * Is true if the engine should print the events of the race to the standard output.
+     */
+    private boolean verbose;
+
+    /**
+     * The RaceEngine class constructor. Moves all cars to the start and initializes checkpoints.
+     * @param map the map on which are the cars going to be racing.
+     * @param cars the states of all cars taking part in the race.
+     * @see RaceEngine#moveCarsToStart()
+     * @see RaceEngine#initCheckpoints()
+     */
+    public RaceEngine(MapData map, CarState[] cars) {
+        this.map = map;
+        this.cars = cars;
+        verbose = true;
+        mapViews = new MapView[cars.length];
+        for (int i = 0; i < cars.length; i++) {
+            mapViews[i] = new DriverMapView(map, cars[i]);
+        }
+        moveCarsToStart();
+        initCheckpoints();
+        activeCarIndex = cars.length - 1;
+        activeCar = cars[activeCarIndex];
+        stop = false;
+        turn = 0;
+        carsFinished = 0;
+    }
+
+    /**
+     * Gets the checkpoints of the map and sets all of them as not passed by all cars.
+     * @see MapData#getCheckpoints()
+     * @see CarState#resetCheckpoints(int)
+     */
+    private void initCheckpoints() {
+        checkpoints = map.getCheckpoints();
+        for (CarState car : cars) {
+            car.resetCheckpoints(checkpoints.length);
+        }
+        log(checkpoints.length + " checkpoints initialized");
+    }
+
+    /**
+     * Relocates all cars to the start.
+     */
+    private void moveCarsToStart() {
+        for (CarState car : cars) {
+            car.setCoordinates(map.getStart()[0], map.getStart()[1]);
+        }
+    }
+
+    /**
+     * Calls the init() method of each AI in the race.
+     * @see DriverAI#init(MapView)
+     */
+    public void initDrivers() {
+        for (int i = 0; i < cars.length; i++) {
+            if (cars[i].getDriver() != null) {
+                cars[i].getDriver().init(mapViews[i]);
+            }
+        }
+    }
+
+    /**
+     * Runs the whole race without any user interaction.
+     * Can only be used if all cars are driven by AIs.
+     * Stops before the race is over if the thread running the race is interrupted.
+     * @throws IllegalStateException thrown if a human player takes part in the race.
+     * @see RaceEngine#initDrivers()
+     */
+    public void runRace() {
+        for (CarState car : cars) {
+            if (car.getDriver() == null) {
+                throw new IllegalStateException("Only races of AIs can be run without the GUI.");
+            }
+        }
+        initDrivers();
+        while (!isRaceOver() && !Thread.currentThread().isInterrupted()) {
+            nextCar();
+            if (activeCar.isCrashed()) {
+                activeCar.countdown();
+            } else if (activeCarSliding()) {
+                drive(0, 0);
+            } else {
+                int[] move = nextAiMove();
+                drive(move[0], move[1]);
+            }
+        }
+        log("Race finished");
+    }
+
+    /**
+     * Returns true if all cars are finished or sunk or the turn-max is reached.
+     * @return true if the race is over.
+     */
+    public boolean isRaceOver() {
+        if (allCarsIdle()) {
+            return true;
+        } else if (turn >= TURN_MAX) {
+            log("Turn limit reached!");
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Returns true if all cars are finished or sunk.
+     * @return true if all cars are finished or sunk
+     */
+    private boolean allCarsIdle() {
+        for (CarState c : cars) {
+            if (!c.isFinished() && !c.isSunk()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Keeps calling the rotateCar() method until the activeCar is a car which has not finished or sunk yet.
+     * @see RaceEngine#rotateCar()
+     */
+    public void nextCar() {
+        rotateCar();
+        while (cars[activeCarIndex].isSunk() || cars[activeCarIndex].isFinished()) {
+            rotateCar();
+        }
+    }
+
+    /**
+     * Rotates activeCarIndex and activeCar to the next car. Increases the turn whenever the activeCarIndex is 0.
+     */
+    private void rotateCar() {
+        if (activeCarIndex < cars.length - 1) {
+            activeCarIndex++;
+        } else {
+            activeCarIndex = 0;
+        }
+        activeCar = cars[activeCarIndex];
+        if (activeCarIndex == 0) {
+            turn++;
+        }
+    }
+
+    /**
+     * Decreases the crash countdown of the active car.
+     * @see CarState#countdown()
+     */
+    public void countdown() {
+        activeCar.countdown();
+    }
+
+    /**
+     * Calls the drive() method of the AI driving the active car to determine its next move
+     * and checks if the move made by AI is valid.
+     * @return the move the AI wants to make or {0,0} if the AI returned an invalid move or threw an exception.
+     * (The returned array must not be modified.)
+     * @see DriverAI#drive(int[], int[], MapView)
+     */
+    public int[] nextAiMove() {
+        int[] nextAiMove;
+        try {
+            nextAiMove = activeCar.getDriver().drive(activeCar.getCoordinates(), activeCar.getVelocity(), mapViews[activeCarIndex]);
+            if (!moveValid(nextAiMove)) {
+                nextAiMove = NO_MOVE;
+            }
+        } catch (Exception e) {
+            System.out.println("An error occurred when the drive() method of the " + activeCar.getAiName() + " was called.");
+            nextAiMove = NO_MOVE;
+        }
+        return nextAiMove;
+    }
+
+    /**
+     * Determines whether the move AI made when its drive() method was called is valid.
+     * @param move the move made by the AI.
+     * @return true if move is a valid move.
+     * @see DriverAI#drive(int[], int[], MapView)
+     */
+    private boolean moveValid(int[] move) {
+        if (move == null || move.length != 2) {
+            return false;
+        } else if ( (move[0] == -1 || move[0] == 0 || move[0] == 1)
+                 && (move[1] == -1 || move[1] == 0 || move[1] == 1 ) ) {
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Changes the velocity vector of the active car according to the move made by the player
+     * given to this method as the int[] a parameter and drives the car.
+     * @param a the acceleration vector which is to be added to the velocity vector of the car before it is driven.
+     * @see RaceEngine#drive(int, int)
+     */
+    public void drive(int[] a) {
+        drive(a[0], a[1]);
+    }
+
+    /**
+     * Changes the velocity vector of the active car according to the move made by the player
+     * using the CarState.accelerate(int ax, int ay) method
+     * and calls the goThroughPath() method to make the car travel through the path
+     * it is to take this turn according to its velocity vector tile by tile.
+     * @param ax the X coordinate of the acceleration vector.
+     * @param ay the Y coordinate of the acceleration vector.
+     * @see CarState#accelerate(int, int)
+     * @see RaceEngine#goThroughPath(CarState)
+     */
+    public void drive(int ax, int ay) {
+        activeCar.accelerate(ax, ay);
+        goThroughPath(activeCar);
+    }
+
+    /**
+     * Makes the car move tile by tile through the path it is to take this turn according to its velocity vector.
+     * (The path is taken from the SweptPaths table.)
+     * checkTile() method is called for each tile the car moves over to determine if the car can move there
+     * and if any special actions are to be made on that tile.
+     * Stops going through tiles if the car crashes (drives into a wall) or sinks (drives into water).
+     * @param car the car which is to change its position by adding its velocity vector to it
+     *            and go through all tiles in the path.
+     * @see CarState
+     * @see SweptPaths#get(int, int)
+     * @see RaceEngine#checkTile(CarState, int, int)
+     */
+    private void goThroughPath(CarState car) {
+        int initX = car.getTileX();
+        int initY = car.getTileY();
+        int[] path = SweptPaths.get(car.getVelX(), car.getVelY());
+        for (int i = 0; i < path.length && !stop; i += 2) {
+            checkTile(car, initX + path[i], initY + path[i + 1]);
+        }
+        stop = false;
+    }
+
+    /**
+     * Checks whether the tile is rideable using the flags of the tile from the MapData.tileFlags() method
+     * and moves the car there or calls the onCarCrash() method accordingly.
+     * Calls the checkForSpecialTiles() method to check if any special actions are to be made on this tile.
+     * @param car the car which is to be moved to the tile or crashed depending on the type of the tile.
+     * @param x the X coordinate of the tile which is to be checked.
+     * @param y the Y coordinate of the tile which is to be checked.
+     * @see MapData#tileFlags(int, int)
+     * @see RaceEngine#onCarCrash(CarState)
+     */
+    private void checkTile(CarState car, int x, int y) {
+        int flags = map.tileFlags(x, y);
+        if ((flags & MapView.WALL) == 0) {
+            car.setCoordinates(x, y);
+            if (flags != 0) {
+                checkForSpecialTiles(car, x, y, flags);
+            }
+        } else {
+            onCarCrash(car);
+        }
+    }
+
+    /**
+     * Sets the velocity vector of the car to (0;0).
+     * Calls the car.crashed() method.
+     * Sets boolean stop to true to stop the goThroughPath() method from going through any more tiles.
+     * @param car the car that crashed.
+     * @see CarState#setVelocity(int, int)
+     * @see CarState#crashed()
+     */
+    private void onCarCrash(CarState car) {
+        car.setVelocity(0, 0);
+        car.crashed();
+        stop = true;
+    }
+
+    /**
+     * Calls all methods which check for special tiles.
+     * @param car the car which has driven over the tile
+     *            and which will be affected by the special actions if there are any on the tile.
+     * @param x the X coordinate of the tile which is to be checked for special actions.
+     * @param y the Y coordinate of the tile which is to be checked for special actions.
+     * @param flags the flags of the tile.
+     * @see RaceEngine#checkForCheckpoint(CarState, int, int, int)
+     * @see RaceEngine#checkForFinish(CarState, int)
+     * @see RaceEngine#checkForSand(CarState, int)
+     * @see RaceEngine#checkForWater(CarState, int)
+     */
+    private void checkForSpecialTiles(CarState car, int x, int y, int flags) {
+        checkForCheckpoint(car, x, y, flags);
+        checkForFinish(car, flags);
+        checkForSand(car, flags);
+        checkForWater(car, flags);
+    }
+
+    /**
+     * Checks whether the tile is checkpoint and saves that the car has passed this checkpoint
+     * using the CarState.passCheckpoint() if so.
+     * @param car the car which has driven over the tile.
+     * @param x the X coordinate of the tile which is to be checked.
+     * @param y the Y coordinate of the tile which is to be checked.
+     * @param flags the flags of the tile.
+     * @see CarState#passCheckpoint(int)
+     */
+    private void checkForCheckpoint(CarState car, int x, int y, int flags) {
+        if ((flags & MapView.CHECKPOINT) != 0) {
+            int id = map.getCheckpointId(x, y);
+            if (car.passCheckpoint(id)) {
+                log("car" + activeCarIndex + " passed checkpoint" + id);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the tile is finish and if the car has passed all checkpoints.
+     * Calls the CarState.finished() method if so.
+     * @param car the car which had driven over the tile.
+     * @param flags the flags of the tile which is to be checked.
+     * @see CarState#hasPassedAllCheckpoints()
+     * @see CarState#finished()
+     */
+    private void checkForFinish(CarState car, int flags) {
+        if ((flags & MapView.FINISH) != 0 && car.hasPassedAllCheckpoints()) {
+            car.finished();
+            carsFinished++;
+            stop = true;
+            log("Car" + activeCarIndex + " finished the race!");
+        }
+    }
+
+    /**
+     * Checks whether the tile is sand and sets the car velocity vector to (0;0)
+     * using the CarState.setVelocity(int vx, int vy) method if so.
+     * @param car the car which has driven over the tile.
+     * @param flags the flags of the tile which is to be checked.
+     * @see CarState#setVelocity(int, int)
+     */
+    private void checkForSand(CarState car, int flags) {
+        if ((flags & MapView.SAND) != 0) {
+            car.setVelocity(0, 0);
+            stop = true;
+        }
+    }
+
+    /**
+     * Checks whether the tile is water and sets the car as "sunk"
+     * using the CarState.sunk() method if so.
+     * (Sunk car cannot continue the race and is DQed.)
+     * @param car the car which has driven over the tile.
+     * @param flags the flags of the tile which is to be checked.
+     * @see CarState#sunk()
+     */
+    private void checkForWater(CarState car, int flags) {
+        if ((flags & MapView.WATER) != 0) {
+            car.sunk();
+            stop = true;
+            log("Car" + activeCarIndex + " sunk!");
+        }
+    }
+
+    /**
+     * Returns true if the active car is on ICE.
+     * @return true if the active car is on ICE.
+     */
+    public boolean activeCarOnIce() {
+        return (map.tileFlags(activeCar.getTileX(), activeCar.getTileY()) & MapView.ICE) != 0;
+    }
+
+    /**
+     * Returns true if the active car is on ICE and moving, so it cannot be controlled this turn.
+     * @return true if the active car is on ICE and its velocity is not {0,0}.
+     */
+    public boolean activeCarSliding() {
+        return activeCarOnIce() && (activeCar.getVelX() != 0 || activeCar.getVelY() != 0);
+    }
+
+    /**
+     * Prints the given message to the standard output if the engine is verbose.
+     * @param message the message to be printed.
+     */
+    private void log(String message) {
+        if (verbose) {
+            System.out.println(message);
+        }
+    }
+
+    /**
+     * Sets whether the engine should print the events of the race to the standard output.
+     * @param verbose true if the events of the race are to be printed.
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    /**
+     * Returns the index of the car currently on turn.
+     * @return the index of the car currently on turn.
+     */
+    public int getActiveCarIndex() {
+        return activeCarIndex;
+    }
+
+    /**
+     * Returns the state of the car currently on turn.
+     * @return the state of the car currently on turn.
+     */
+    public CarState getActiveCar() {
+        return activeCar;
+    }
+
+    /**
+     * Returns the current turn.
+     * @return the current turn.
+     */
+    public int getTurn() {
+        return turn;
+    }
+
+    /**
+     * Returns the number of cars which have finished the race.
+     * @return the number of cars which have finished the race.
+     */
+    public int getCarsFinished() {
+        return carsFinished;
+    }
+
+    /**
+     * Returns the map on which are the cars racing.
+     * @return the map on which are the cars racing.
+     */
+    public MapData getMap() {
+        return map;
+    }
+
+    /**
+     * Returns all checkpoints of the map.
+     * @return all checkpoints of the map.
+     */
+    public Checkpoint[] getCheckpoints() {
+        return checkpoints;
+    }
+
+}
@@ -0,0 +1,129 @@
+package model;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static java.lang.Math.abs;
+
+/**
+ * The table of tiles a car drives over in one turn for every velocity vector.
+ * The tiles depend only on the velocity vector, so they are computed only once for each vector (the first time
+ * the vector is needed) and then shared by the race engine and the AIs. The table is thread-safe,
+ * so it can be used by more races running in parallel.
+ * Each path is stored as offsets relative to the position of the car at the beginning of the turn
+ * in the order in which the car drives over the tiles. (dx0, dy0, dx1, dy1, ...)
+ * The last tile of the path is always the target tile. (The offsets of the last tile are equal to the velocity vector.)
+ */
+public final class SweptPaths {
+
+    /**
+     * The maximal absolute value of the coordinates of velocity vectors which are stored in the array.
+     * The paths of faster velocity vectors are stored in the map.
+     */
+    private final static int ARRAY_LIMIT = 32;
+    /**
+     * The length of one side of the square of velocity vectors stored in the array.
+     */
+    private final static int ARRAY_SIDE = 2 * ARRAY_LIMIT + 1;
+    /**
+     * The paths of the velocity vectors with both coordinates within ARRAY_LIMIT.
+     * (Indexed by (vy + ARRAY_LIMIT) * ARRAY_SIDE + vx + ARRAY_LIMIT.)
+     */
+    private final static AtomicReferenceArray<int[]> pathArray = new AtomicReferenceArray<>(ARRAY_SIDE * ARRAY_SIDE);
+    /**
+     * The paths of all other velocity vectors mapped by the packed velocity vector.
+     */
+    private final static ConcurrentHashMap<Long, int[]> pathMap = new ConcurrentHashMap<>();
+
+    /**
+     * SweptPaths is a static table and cannot be instantiated.
+     */
+    private SweptPaths() {}
+
+    /**
+     * Returns the offsets of the tiles the car drives over in one turn with the given velocity vector.
+     * The returned array is shared and must not be modified.
+     * @param vx the X coordinate of the velocity vector.
+     * @param vy the Y coordinate of the velocity vector.
+     * @return the offsets of the tiles relative to the position of the car. (dx0, dy0, dx1, dy1, ...)
+     */
+    public static int[] get(int vx, int vy) {
+        if (abs(vx) <= ARRAY_LIMIT && abs(vy) <= ARRAY_LIMIT) {
+            int index = (vy + ARRAY_LIMIT) * ARRAY_SIDE + vx + ARRAY_LIMIT;
+            int[] path = pathArray.get(index);
+            if (path == null) {
+                path = computePath(vx, vy);
+                if (!pathArray.compareAndSet(index, null, path)) {
+                    path = pathArray.get(index);
+                }
+            }
+            return path;
+        }
+        return pathMap.computeIfAbsent(((long) vx << 32) | (vy & 0xFFFFFFFFL), key -> computePath(vx, vy));
+    }
+
+    /**
+     * Returns the number of tiles the car drives over in one turn with the given velocity vector.
+     * @param vx the X coordinate of the velocity vector.
+     * @param vy the Y coordinate of the velocity vector.
+     * @return the number of tiles in the path.
+     */
+    public static int length(int vx, int vy) {
+        return get(vx, vy).length / 2;
+    }
+
+    /**
+     * Finds the straightest symmetrical path from (0;0) to the given velocity vector.
+     * The car can move to any adjacent tile including diagonal ones.
+     * Horizontal, vertical and diagonal paths go straight. Other paths contain all tiles whose centre is
+     * in the distance of at most 0.5 from the line between the start and the target. The distance is compared
+     * in integers: |a*x + b*y| / sqrt(a^2 + b^2) <= 0.5 is the same as 4 * (a*x + b*y)^2 <= a^2 + b^2.
+     * The start tile itself is not a part of the path.
+     * @param vx the X coordinate of the velocity vector.
+     * @param vy the Y coordinate of the velocity vector.
+     * @return the offsets of the tiles in the path. (dx0, dy0, dx1, dy1, ...)
+     */
+    private static int[] computePath(int vx, int vy) {
+        int dirX = Integer.compare(vx, 0);
+        int dirY = Integer.compare(vy, 0);
+        int[] path = new int[2 * (abs(vx) + abs(vy) + 1)];
+        int length = 0;
+
+        if (vx == 0 || vy == 0 || abs(vx) == abs(vy)) {
+            for (int i = 1; i <= Math.max(abs(vx), abs(vy)); i++) {
+                path[length++] = dirX * i;
+                path[length++] = dirY * i;
+            }
+
+        } else {
+            long a = -vy;
+            long b = vx;
+            long limit = a * a + b * b;
+            boolean xOuter = abs(vx) > abs(vy);
+            int outerEnd = xOuter ? vx : vy;
+            int innerEnd = xOuter ? vy : vx;
+            int outerDir = xOuter ? dirX : dirY;
+            int innerDir = xOuter ? dirY : dirX;
+
+            for (int i = 0; i - outerDir != outerEnd; i += outerDir) {
+                for (int j = 0; j - innerDir != innerEnd; j += innerDir) {
+                    if (i == 0 && j == 0) {
+                        continue;
+                    }
+                    int x = xOuter ? i : j;
+                    int y = xOuter ? j : i;
+                    long distance = a * x + b * y;
+                    if (4 * distance * distance <= limit) {
+                        path[length++] = x;
+                        path[length++] = y;
+                    }
+                }
+            }
+        }
+
+        int[] trimmed = new int[length];
+        System.arraycopy(path, 0, trimmed, 0, length);
+        return trimmed;
+    }
+
+}
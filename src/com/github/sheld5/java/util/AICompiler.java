@@ -13,18 +13,44 @@ public class AICompiler {
 
     /**
      * Compiles the AI of the given CarPanel if it has not been compiled yet and returns an instance of it.
-     * Uses the jOOR library. Uses the get-methods of the CarPanel to get the name of the AI and the name of its file.
+     * Uses the get-methods of the CarPanel to get the name of the AI and the name of its file.
      * @param carPanel the CarPanel from which the methods gets the required information about the AI.
      * @return an instance of the AI described in the CarPanel given as the parameter.
      * @throws IOException
      * @see DriverAI
      * @see CarPanel#getAiName()
      * @see CarPanel#getAiFile()
+     * @see AICompiler#compile(File, String)
      */
     public DriverAI compile(CarPanel carPanel) throws IOException {
+        return compile(carPanel.getAiFile(), carPanel.getAiName());
+    }
+
+    /**
+     * Compiles the AI from the given file and returns an instance of it.
+     * @param aiFile the java file containing the AI.
+     * @param aiName the name of the AI class.
+     * @return an instance of the AI from the given file.
+     * @throws IOException
+     * @see AICompiler#compileClass(File, String)
+     */
+    public DriverAI compile(File aiFile, String aiName) throws IOException {
+        return Reflect.onClass(compileClass(aiFile, aiName)).create().get();
+    }
+
+    /**
+     * Compiles the AI from the given file and returns its class, so more instances of it can be created.
+     * Uses the jOOR library.
+     * @param aiFile the java file containing the AI.
+     * @param aiName the name of the AI class.
+     * @return the compiled class of the AI from the given file.
+     * @throws IOException
+     * @see DriverAI
+     */
+    public Class<?> compileClass(File aiFile, String aiName) throws IOException {
         try {
-            System.out.println(carPanel.getAiFile().getPath());
-            InputStream in = new FileInputStream(carPanel.getAiFile());
+            System.out.println(aiFile.getPath());
+            InputStream in = new FileInputStream(aiFile);
             BufferedReader reader = new BufferedReader(new InputStreamReader(in));
             StringBuilder builder = new StringBuilder();
             String line = reader.readLine();
@@ -37,10 +63,10 @@ public class AICompiler {
             }
             String content = builder.toString();
 
-            return Reflect.compile("model." + carPanel.getAiName(), content).create().get();
+            return Reflect.compile("model." + aiName, content).type();
         } catch (IOException e) {
-             System.out.println("Error while compiling AI " + carPanel.getAiName());
-             System.out.println("AI file: " + carPanel.getAiFile());
+             System.out.println("Error while compiling AI " + aiName);
+             System.out.println("AI file: " + aiFile);
              throw e;
         }
     }
@@ -8,12 +8,20 @@ import org.xml.sax.SAXException;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Base64;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 /**
  * Reads the map files, the tile-set file and the file lists.
@@ -21,87 +29,340 @@ import java.util.HashMap;
 public class DataReader {
 
     /**
-     * Creates Document from the given file from the /maps directory.
-     * @param fileName the name of the file from which is the document to be made.
+     * The size of the buffer into which is the text of the map data copied while it is being decoded.
+     */
+    private final static int BUFFER_SIZE = 4096;
+    /**
+     * The bits of the number of a tile which contain the number of the tile type.
+     * (The highest three bits are used by Tiled to save whether the tile is flipped.)
+     */
+    private final static int GID_MASK = 0x1FFFFFFF;
+
+    /**
+     * The text of one XML element read as a stream of bytes. (Every character is one byte, the text of the map data
+     * is always ASCII.) Reads the text from the XML reader in parts as it is needed and ends at the end of the element.
+     */
+    private static class ElementTextInputStream extends InputStream {
+        /**
+         * The reader positioned inside the element.
+         */
+        private XMLStreamReader reader;
+        /**
+         * The buffer into which are the characters copied from the reader.
+         */
+        private char[] buffer = new char[BUFFER_SIZE];
+        /**
+         * The position of the next character in the buffer and the number of characters in the buffer.
+         */
+        private int position, length;
+        /**
+         * The position in the text of the current XML event from which are the next characters to be copied.
+         */
+        private int textStart;
+        /**
+         * Is true if the current XML event is text which has not been copied whole yet.
+         */
+        private boolean inText;
+        /**
+         * Is true once the end of the element has been reached.
+         */
+        private boolean ended;
+
+        /**
+         * The ElementTextInputStream class constructor.
+         * @param reader the reader positioned at the start of the element.
+         */
+        private ElementTextInputStream(XMLStreamReader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * Copies the next characters of the element into the buffer.
+         * @return false if the end of the element has been reached.
+         * @throws IOException thrown if the file is not a valid XML file.
+         */
+        private boolean fill() throws IOException {
+            try {
+                while (!ended) {
+                    if (inText) {
+                        length = reader.getTextCharacters(textStart, buffer, 0, BUFFER_SIZE);
+                        textStart += length;
+                        position = 0;
+                        if (length > 0) {
+                            return true;
+                        }
+                        inText = false;
+                    }
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.END_ELEMENT) {
+                        ended = true;
+                    } else if (reader.isCharacters()) {
+                        inText = true;
+                        textStart = 0;
+                    }
+                }
+                return false;
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position == length && !fill()) {
+                return -1;
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position == length && !fill()) {
+                return -1;
+            }
+            int n = Math.min(len, length - position);
+            for (int i = 0; i < n; i++) {
+                b[off + i] = (byte) buffer[position++];
+            }
+            return n;
+        }
+    }
+
+    /**
+     * Creates Document from the given stream of a file.
+     * @param in the stream of the file from which is the document to be made.
+     * @param source the name of the file used in error messages.
      * @return the document made from the given file.
      * @throws IOException
      * @throws SAXException
      * @throws ParserConfigurationException
      * @throws IllegalArgumentException
      */
-    private Document createDocFromFile(String fileName) throws IOException, SAXException, ParserConfigurationException, IllegalArgumentException {
+    private Document createDoc(InputStream in, String source) throws IOException, SAXException, ParserConfigurationException, IllegalArgumentException {
         try {
-            InputStream in = getClass().getResourceAsStream("/maps/" + fileName);
             DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
             DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
             Document doc = dBuilder.parse(in);
             doc.getDocumentElement().normalize();
             return doc;
         } catch (Exception e) {
-            System.out.println("Error while loading " + "/maps/" + fileName);
+            System.out.println("Error while loading " + source);
             throw e;
+        } finally {
+            if (in != null) {
+                in.close();
+            }
         }
     }
 
     /**
      * Returns an int[][] array extracted from the map file representing all tiles of the map.
-     * Uses createDocFromFile() method to create Document from the given file, so it can be read.
-     * @param mapFile
-     * @return
-     * @throws IOException
-     * @throws ParserConfigurationException
-     * @throws SAXException
-     * @see DataReader#createDocFromFile(String)
+     * The map file is read as a stream of XML events, so no document of the whole file is created.
+     * The size of the map is read from the first layer and its data are decoded by the readCsvData() method
+     * or by the readBase64Data() method according to their encoding.
+     * @param in the stream of the map file.
+     * @param source the name of the map file used in error messages.
+     * @return the numbers of the tiles of the map. (The first index selects the row, the second one the column.)
+     * @throws IOException thrown if the file cannot be read or if the data of the map are not valid.
+     * @see DataReader#readCsvData(XMLStreamReader, int[][])
+     * @see DataReader#readBase64Data(XMLStreamReader, String, int[][])
+     */
+    private int[][] getIntData(InputStream in, String source) throws IOException {
+        if (in == null) {
+            System.out.println("Error while loading " + source);
+            throw new IOException("File " + source + " not found.");
+        }
+        XMLStreamReader reader = null;
+        try {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            reader = factory.createXMLStreamReader(in);
+            int[][] data = null;
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                if (reader.getLocalName().equals("layer")) {
+                    int width = Integer.parseInt(reader.getAttributeValue(null, "width"));
+                    int height = Integer.parseInt(reader.getAttributeValue(null, "height"));
+                    data = new int[height][width];
+                } else if (reader.getLocalName().equals("data")) {
+                    String encoding = reader.getAttributeValue(null, "encoding");
+                    if (data == null) {
+                        throw new IOException("The map data are not inside a layer.");
+                    } else if ("csv".equals(encoding)) {
+                        readCsvData(reader, data);
+                    } else if ("base64".equals(encoding)) {
+                        readBase64Data(reader, reader.getAttributeValue(null, "compression"), data);
+                    } else {
+                        throw new IOException("Unsupported encoding of the map data: " + encoding);
+                    }
+                    return data;
+                }
+            }
+            throw new IOException("No map data found.");
+        } catch (XMLStreamException e) {
+            System.out.println("Error while loading " + source);
+            throw new IOException(e);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error while loading " + source);
+            throw e;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    e.printStackTrace();
+                }
+            }
+            in.close();
+        }
+    }
+
+    /**
+     * Decodes the comma-separated numbers of the tiles from the text of the data element.
+     * The text is copied into a buffer of a fixed size and the numbers are decoded from it digit by digit,
+     * so no String is created for the numbers.
+     * @param reader the reader positioned at the start of the data element.
+     * @param data the array into which are the numbers to be saved. (Its size is the size of the map.)
+     * @throws XMLStreamException thrown if the file is not a valid XML file.
+     * @throws IOException thrown if the data contain anything else than numbers or there are not as many of them as tiles.
      */
-    private int[][] getIntData(String mapFile) throws IOException, ParserConfigurationException, SAXException {
-        String[] dataRows = createDocFromFile(mapFile).getElementsByTagName("data").item(0).getTextContent().split("\n");
-        String[] row;
-        int[][] data = new int[dataRows.length - 1][dataRows[1].split(",").length];
-        for (int i = 1; i < dataRows.length; i++) {
-            row = dataRows[i].split(",");
-            for (int o = 0; o < row.length; o++) {
-                data[i - 1][o] = Integer.parseInt(row[o]);
+    private void readCsvData(XMLStreamReader reader, int[][] data) throws XMLStreamException, IOException {
+        char[] buffer = new char[BUFFER_SIZE];
+        int width = data[0].length;
+        int tiles = width * data.length;
+        int count = 0;
+        long value = 0;
+        boolean inNumber = false;
+        while (reader.next() != XMLStreamConstants.END_ELEMENT) {
+            if (!reader.isCharacters()) {
+                continue;
+            }
+            int length = BUFFER_SIZE;
+            for (int start = 0; length == BUFFER_SIZE; start += BUFFER_SIZE) {
+                length = reader.getTextCharacters(start, buffer, 0, BUFFER_SIZE);
+                for (int i = 0; i < length; i++) {
+                    char c = buffer[i];
+                    if (c >= '0' && c <= '9') {
+                        value = value * 10 + (c - '0');
+                        inNumber = true;
+                    } else if (c == ',' || Character.isWhitespace(c)) {
+                        if (inNumber) {
+                            if (count == tiles) {
+                                throw new IOException("The map data contain more tiles than the size of the map.");
+                            }
+                            data[count / width][count % width] = (int) value;
+                            count++;
+                            value = 0;
+                            inNumber = false;
+                        }
+                    } else {
+                        throw new IOException("Unexpected character in the map data: " + c);
+                    }
+                }
             }
         }
-        return data;
+        if (inNumber) {
+            if (count == tiles) {
+                throw new IOException("The map data contain more tiles than the size of the map.");
+            }
+            data[count / width][count % width] = (int) value;
+            count++;
+        }
+        if (count != tiles) {
+            throw new IOException("The map data contain " + count + " tiles instead of " + tiles + ".");
+        }
     }
 
     /**
-     * Returns HashMap&lt;Integer, Tile&gt; extracted from the tile-set file from the /maps directory.
-     * Uses createDocFromFile() method to create Document from the given file, so it can be read.
-     * @param fileName the name of the tile-set file.
-     * @return the HashMap&lt;Integer, Tile&gt; containing pairs of tile types and the number
-     * which represent them in the files of the maps which use the tile-set given as the parameter.
+     * Decodes the numbers of the tiles from the base64 text of the data element.
+     * The text is decoded and decompressed as a stream, so only the numbers themselves are saved.
+     * Each number is a little-endian unsigned 32-bit integer.
+     * @param reader the reader positioned at the start of the data element.
+     * @param compression the compression of the data. ("zlib", "gzip" or NULL if the data are not compressed)
+     * @param data the array into which are the numbers to be saved. (Its size is the size of the map.)
+     * @throws IOException thrown if the data cannot be decoded or decompressed or there are less of them than tiles.
+     */
+    private void readBase64Data(XMLStreamReader reader, String compression, int[][] data) throws IOException {
+        InputStream in = Base64.getMimeDecoder().wrap(new ElementTextInputStream(reader));
+        if ("zlib".equals(compression)) {
+            in = new InflaterInputStream(in);
+        } else if ("gzip".equals(compression)) {
+            in = new GZIPInputStream(in);
+        } else if (compression != null) {
+            throw new IOException("Unsupported compression of the map data: " + compression);
+        }
+
+        byte[] bytes = new byte[BUFFER_SIZE];
+        int width = data[0].length;
+        int tiles = width * data.length;
+        int count = 0;
+        int filled = 0;
+        while (count < tiles) {
+            int n = in.read(bytes, filled, bytes.length - filled);
+            if (n < 0) {
+                throw new IOException("The map data contain " + count + " tiles instead of " + tiles + ".");
+            }
+            filled += n;
+            int i = 0;
+            for (; i + 4 <= filled && count < tiles; i += 4) {
+                data[count / width][count % width] = (bytes[i] & 0xFF) | (bytes[i + 1] & 0xFF) << 8
+                        | (bytes[i + 2] & 0xFF) << 16 | (bytes[i + 3] & 0xFF) << 24;
+                count++;
+            }
+            System.arraycopy(bytes, i, bytes, 0, filled - i);
+            filled -= i;
+        }
+    }
+
+    /**
+     * Returns the Tile[] array extracted from the tile-set file.
+     * Uses createDoc() method to create Document from the given file, so it can be read.
+     * @param in the stream of the tile-set file.
+     * @param source the name of the tile-set file used in error messages.
+     * @return the array of tile types indexed by the number which represents them in the files of the maps
+     * which use the tile-set given as the parameter. (NULL for numbers which do not represent any tile type.)
      * @throws IOException
      * @throws ParserConfigurationException
      * @throws SAXException
-     * @see DataReader#createDocFromFile(String)
+     * @see DataReader#createDoc(InputStream, String)
      */
-    private HashMap<Integer, Tile> getTileSet(String fileName) throws IOException, ParserConfigurationException, SAXException {
-        HashMap<Integer, Tile> tileSet = new HashMap<>();
-        Document doc = createDocFromFile(fileName);
+    private Tile[] getTileSet(InputStream in, String source) throws IOException, ParserConfigurationException, SAXException {
+        Document doc = createDoc(in, source);
         NodeList nList = doc.getElementsByTagName("tile");
+        int[] gids = new int[nList.getLength()];
+        int maxGid = 0;
+        for (int i = 0; i < nList.getLength(); i++) {
+            gids[i] = Integer.parseInt(nList.item(i).getAttributes().item(0).getNodeValue()) + 1;
+            maxGid = Math.max(maxGid, gids[i]);
+        }
+
+        Tile[] tileSet = new Tile[maxGid + 1];
         String imageFileName;
         for (int i = 0; i < nList.getLength(); i++) {
             imageFileName = nList.item(i).getChildNodes().item(1).getAttributes().item(1).getNodeValue().substring(10);
             if (imageFileName.equals("TileCheckpoint.png")) {
-                tileSet.put(Integer.parseInt(nList.item(i).getAttributes().item(0).getNodeValue()) + 1, Tile.CHECKPOINT);
+                tileSet[gids[i]] = Tile.CHECKPOINT;
             } else if (imageFileName.equals("TileFinish.png")) {
-                tileSet.put(Integer.parseInt(nList.item(i).getAttributes().item(0).getNodeValue()) + 1, Tile.FINISH);
+                tileSet[gids[i]] = Tile.FINISH;
             } else if (imageFileName.equals("TileGrass.png")) {
-                tileSet.put(Integer.parseInt(nList.item(i).getAttributes().item(0).getNodeValue()) + 1, Tile.GRASS);
+                tileSet[gids[i]] = Tile.GRASS;
             } else if (imageFileName.equals("TileRoad.png")) {
-                tileSet.put(Integer.parseInt(nList.item(i).getAttributes().item(0).getNodeValue()) + 1, Tile.ROAD);
+                tileSet[gids[i]] = Tile.ROAD;
             } else if (imageFileName.equals("TileSand.png")) {
-                tileSet.put(Integer.parseInt(nList.item(i).getAttributes().item(0).getNodeValue()) + 1, Tile.SAND);
+                tileSet[gids[i]] = Tile.SAND;
             } else if (imageFileName.equals("TileStart.png")) {
-                tileSet.put(Integer.parseInt(nList.item(i).getAttributes().item(0).getNodeValue()) + 1, Tile.START);
+                tileSet[gids[i]] = Tile.START;
             } else if (imageFileName.equals("TileWall.png")) {
-                tileSet.put(Integer.parseInt(nList.item(i).getAttributes().item(0).getNodeValue()) + 1, Tile.WALL);
+                tileSet[gids[i]] = Tile.WALL;
             } else if (imageFileName.equals("TileWater.png")) {
-                tileSet.put(Integer.parseInt(nList.item(i).getAttributes().item(0).getNodeValue()) + 1, Tile.WATER);
+                tileSet[gids[i]] = Tile.WATER;
             } else if (imageFileName.equals("TileIce.png")) {
-                tileSet.put(Integer.parseInt(nList.item(i).getAttributes().item(0).getNodeValue()) + 1, Tile.ICE);
+                tileSet[gids[i]] = Tile.ICE;
             }
         }
         return tileSet;
@@ -109,31 +370,72 @@ public class DataReader {
 
     /**
      * Returns a Tile[][] array representing the map given as the parameter.
-     * Uses getIntData() and getTileSet methods to read the map and the tile-set files
-     * and then converts the int[][] array from the map file into a Tile[][] array using the HashMap from the tile-set.
+     * Reads the map and the tile-set files from the /maps directory using the translateMap() method.
      * @param mapFileName the name of the map file which is to be read and converted into Tile[][] array.
      * @param tileSetFileName the name of the tile-set file which is to be used
      *                        to 'translate' the numbers in the map file to values of the enum Tile.
      * @return 2d Tile array representing the map given as the parameter.
+     * @throws MapFormatException thrown if the map contains a number which does not represent any tile type of the tile-set.
      * @throws ParserConfigurationException
      * @throws SAXException
      * @throws IOException
-     * @see DataReader#getIntData(String)
-     * @see DataReader#getTileSet(String)
+     * @see DataReader#translateMap(InputStream, String, InputStream, String)
+     */
+    public Tile[][] getMapData(String mapFileName, String tileSetFileName) throws MapFormatException, ParserConfigurationException, SAXException, IOException {
+        try (InputStream mapIn = getClass().getResourceAsStream("/maps/" + mapFileName);
+             InputStream tileSetIn = getClass().getResourceAsStream("/maps/" + tileSetFileName)) {
+            return translateMap(mapIn, "/maps/" + mapFileName, tileSetIn, "/maps/" + tileSetFileName);
+        }
+    }
+
+    /**
+     * Returns a Tile[][] array representing the map given as the parameter.
+     * Reads the map and the tile-set files from the file system using the translateMap() method.
+     * @param mapFile the map file which is to be read and converted into Tile[][] array.
+     * @param tileSetFile the tile-set file which is to be used
+     *                    to 'translate' the numbers in the map file to values of the enum Tile.
+     * @return 2d Tile array representing the map given as the parameter.
+     * @throws MapFormatException thrown if the map contains a number which does not represent any tile type of the tile-set.
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     * @throws IOException
+     * @see DataReader#translateMap(InputStream, String, InputStream, String)
+     */
+    public Tile[][] getMapData(File mapFile, File tileSetFile) throws MapFormatException, ParserConfigurationException, SAXException, IOException {
+        try (InputStream mapIn = new FileInputStream(mapFile); InputStream tileSetIn = new FileInputStream(tileSetFile)) {
+            return translateMap(mapIn, mapFile.getPath(), tileSetIn, tileSetFile.getPath());
+        }
+    }
+
+    /**
+     * Uses getIntData() and getTileSet methods to read the map and the tile-set files
+     * and then converts the int[][] array from the map file into a Tile[][] array using the array from the tile-set.
+     * (The flags of flipped tiles are ignored.)
+     * @param mapIn the stream of the map file.
+     * @param mapSource the name of the map file used in error messages.
+     * @param tileSetIn the stream of the tile-set file.
+     * @param tileSetSource the name of the tile-set file used in error messages.
+     * @return 2d Tile array representing the map.
+     * @throws MapFormatException thrown if the map contains a number which does not represent any tile type of the tile-set.
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     * @throws IOException
+     * @see DataReader#getIntData(InputStream, String)
+     * @see DataReader#getTileSet(InputStream, String)
      * @see Tile
      */
-    public Tile[][] getMapData(String mapFileName, String tileSetFileName) throws ParserConfigurationException, SAXException, IOException {
-        int[][] mapInt = getIntData(mapFileName);
-        HashMap<Integer, Tile> tileSet = getTileSet(tileSetFileName);
+    private Tile[][] translateMap(InputStream mapIn, String mapSource, InputStream tileSetIn, String tileSetSource) throws MapFormatException, ParserConfigurationException, SAXException, IOException {
+        int[][] mapInt = getIntData(mapIn, mapSource);
+        Tile[] tileSet = getTileSet(tileSetIn, tileSetSource);
         Tile[][] mapTile = new Tile[mapInt.length][mapInt[0].length];
         for (int y = 0; y < mapInt.length; y++) {
             for (int x = 0; x < mapInt[0].length; x++) {
-                for (Integer i : tileSet.keySet()) {
-                    if (i == mapInt[y][x]) {
-                        mapTile[y][x] = tileSet.get(i);
-                        break;
-                    }
+                int gid = mapInt[y][x] & GID_MASK;
+                if (gid >= tileSet.length || tileSet[gid] == null) {
+                    System.out.println("Unknown tile " + gid + " found on the map at " + x + "," + y);
+                    throw new MapFormatException(MapFormatException.Reason.UNKNOWN_TILE, "Unknown tile " + gid + " at " + x + "," + y + " in " + mapSource, x, y);
                 }
+                mapTile[y][x] = tileSet[gid];
             }
         }
         return mapTile;
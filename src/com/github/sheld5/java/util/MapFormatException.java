@@ -2,6 +2,106 @@ package util;
 
 /**
  * Exception which is thrown if there is no start on the map or there is more than one start
- * or if there is no finish.
+ * or if there is no finish or if the map contains a tile which is not in the tile-set.
+ * Carries the reason and (if the problem is caused by one tile) the coordinates of the tile.
  */
-public class MapFormatException extends Exception {}
+public class MapFormatException extends Exception {
+
+    /**
+     * The reasons why a map can be invalid.
+     */
+    public enum Reason {
+        /**
+         * There is no START tile on the map.
+         */
+        NO_START,
+        /**
+         * There is more than one START tile on the map.
+         */
+        MORE_STARTS,
+        /**
+         * There is no FINISH tile on the map.
+         */
+        NO_FINISH,
+        /**
+         * The map contains a tile which is not in the tile-set.
+         */
+        UNKNOWN_TILE,
+        /**
+         * The file is not a valid map file.
+         */
+        INVALID_FILE
+    }
+
+    /**
+     * The reason why the map is invalid.
+     */
+    private final Reason reason;
+    /**
+     * The coordinates of the tile which makes the map invalid. (-1 if the problem is not caused by one tile.)
+     */
+    private final int x, y;
+
+    /**
+     * The MapFormatException class constructor.
+     */
+    public MapFormatException() {
+        this(Reason.INVALID_FILE, null);
+    }
+
+    /**
+     * The MapFormatException class constructor.
+     * @param message the description of the problem with the map.
+     */
+    public MapFormatException(String message) {
+        this(Reason.INVALID_FILE, message);
+    }
+
+    /**
+     * The MapFormatException class constructor for problems which are not caused by one tile.
+     * @param reason the reason why the map is invalid.
+     * @param message the description of the problem with the map.
+     */
+    public MapFormatException(Reason reason, String message) {
+        this(reason, message, -1, -1);
+    }
+
+    /**
+     * The MapFormatException class constructor for problems caused by one tile.
+     * @param reason the reason why the map is invalid.
+     * @param message the description of the problem with the map.
+     * @param x the X coordinate of the tile which makes the map invalid.
+     * @param y the Y coordinate of the tile which makes the map invalid.
+     */
+    public MapFormatException(Reason reason, String message, int x, int y) {
+        super(message);
+        this.reason = reason;
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Returns the reason why the map is invalid.
+     * @return the reason why the map is invalid.
+     */
+    public Reason getReason() {
+        return reason;
+    }
+
+    /**
+     * Returns the X coordinate of the tile which makes the map invalid.
+     * @return the X coordinate of the tile or -1 if the problem is not caused by one tile.
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Returns the Y coordinate of the tile which makes the map invalid.
+     * @return the Y coordinate of the tile or -1 if the problem is not caused by one tile.
+     */
+    public int getY() {
+        return y;
+    }
+
+}
@@ -0,0 +1,207 @@
+package util;
+
+import model.CompiledMap;
+import model.MapData;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the parsed maps, so each map is parsed only once no matter how many games or races are played on it.
+ * MapData is not modified after it is created, so the same instance can be shared by all of them.
+ * Keeps at most MAX_MAPS maps (the least recently used one is removed first) and holds them by soft references,
+ * so the garbage collector can remove them if the memory runs out.
+ * Maps can also be read from a map directory in the file system (set by the racetrack.mapDir system property
+ * or by the --map-dir argument), so they can be changed without rebuilding the game.
+ */
+public class MapRepository {
+
+    /**
+     * The name of the tile-set file used for reading map files.
+     */
+    public final static String TILE_SET_FILE_NAME = "RacetrackTileSet.tsx";
+    /**
+     * The maximal number of maps kept in the repository.
+     */
+    private final static int MAX_MAPS = 16;
+    /**
+     * The name of the system property which sets the map directory.
+     */
+    public final static String MAP_DIRECTORY_PROPERTY = "racetrack.mapDir";
+
+    /**
+     * The directory in the file system from which the maps are read. (NULL if the maps are read only from /maps.)
+     */
+    private static volatile Path mapDirectory = System.getProperty(MAP_DIRECTORY_PROPERTY) == null
+            ? null : Paths.get(System.getProperty(MAP_DIRECTORY_PROPERTY));
+
+    /**
+     * The parsed maps mapped by their names in the order from the least recently used one.
+     */
+    private static LinkedHashMap<String, SoftReference<MapData>> maps = new LinkedHashMap<String, SoftReference<MapData>>(MAX_MAPS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SoftReference<MapData>> eldest) {
+            return size() > MAX_MAPS;
+        }
+    };
+
+    /**
+     * Returns the parsed map with the given name. Parses the map only if it is not in the repository yet.
+     * Map names with the extension of compiled maps are loaded from the file system. The other maps are read
+     * from the map directory if it is set and contains the map (and the tile-set), otherwise from the /maps directory.
+     * @param mapName the name of the map file.
+     * @return the parsed map.
+     * @throws MapFormatException thrown if there is no start on the map or there is more than one start
+     *                            or if there is no finish or if the map contains a tile which is not in the tile-set.
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     * @throws IOException
+     * @see MapData
+     * @see CompiledMap#load(java.nio.file.Path)
+     */
+    public static MapData get(String mapName) throws MapFormatException, ParserConfigurationException, SAXException, IOException {
+        MapData map = getIfLoaded(mapName);
+        if (map != null) {
+            return map;
+        }
+
+        if (mapName.endsWith(CompiledMap.EXTENSION)) {
+            map = CompiledMap.load(Paths.get(mapName));
+        } else {
+            map = readMap(mapName);
+        }
+
+        synchronized (MapRepository.class) {
+            MapData loaded = getIfLoaded(mapName);
+            if (loaded != null) {
+                return loaded;
+            }
+            maps.put(mapName, new SoftReference<>(map));
+        }
+        return map;
+    }
+
+    /**
+     * Parses the map with the given name again and replaces the map in the repository with it.
+     * The previous map is used until the new one is parsed, so games started meanwhile do not have to wait.
+     * (Races which are already running keep the previous map.)
+     * @param mapName the name of the map file.
+     * @return the parsed map.
+     * @throws MapFormatException thrown if there is no start on the map or there is more than one start
+     *                            or if there is no finish or if the map contains a tile which is not in the tile-set.
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     * @throws IOException
+     */
+    public static MapData reload(String mapName) throws MapFormatException, ParserConfigurationException, SAXException, IOException {
+        MapData map;
+        if (mapName.endsWith(CompiledMap.EXTENSION)) {
+            CompiledMap.release(Paths.get(mapName));
+            map = CompiledMap.load(Paths.get(mapName));
+        } else {
+            map = readMap(mapName);
+        }
+        synchronized (MapRepository.class) {
+            maps.put(mapName, new SoftReference<>(map));
+        }
+        return map;
+    }
+
+    /**
+     * Parses the map with the given name from the map directory if it is there, otherwise from the /maps directory.
+     * @param mapName the name of the map file.
+     * @return the parsed map.
+     * @throws MapFormatException thrown if there is no start on the map or there is more than one start
+     *                            or if there is no finish or if the map contains a tile which is not in the tile-set.
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     * @throws IOException
+     */
+    private static MapData readMap(String mapName) throws MapFormatException, ParserConfigurationException, SAXException, IOException {
+        Path directory = mapDirectory;
+        if (directory != null) {
+            Path mapFile = directory.resolve(mapName);
+            Path tileSetFile = directory.resolve(TILE_SET_FILE_NAME);
+            if (Files.isRegularFile(mapFile) && Files.isRegularFile(tileSetFile)) {
+                return new MapData(mapFile.toFile(), tileSetFile.toFile());
+            }
+        }
+        return new MapData(mapName, TILE_SET_FILE_NAME);
+    }
+
+    /**
+     * Sets the directory in the file system from which the maps are read.
+     * Removes all maps from the repository, so they are read from the new directory.
+     * @param directory the map directory. (NULL to read the maps only from /maps.)
+     */
+    public static void setMapDirectory(Path directory) {
+        mapDirectory = directory;
+        invalidateAll();
+    }
+
+    /**
+     * Returns the directory in the file system from which the maps are read.
+     * @return the map directory or NULL if the maps are read only from /maps.
+     */
+    public static Path getMapDirectory() {
+        return mapDirectory;
+    }
+
+    /**
+     * Returns the parsed map with the given name if it is in the repository.
+     * @param mapName the name of the map file.
+     * @return the parsed map or NULL if it has not been parsed yet (or has been removed).
+     */
+    public static synchronized MapData getIfLoaded(String mapName) {
+        SoftReference<MapData> reference = maps.get(mapName);
+        if (reference == null) {
+            return null;
+        }
+        MapData map = reference.get();
+        if (map == null) {
+            maps.remove(mapName);
+        }
+        return map;
+    }
+
+    /**
+     * Removes the map with the given name from the repository, so it is parsed again the next time it is needed.
+     * (Should be called when the map file changes.)
+     * @param mapName the name of the map file.
+     */
+    public static synchronized void invalidate(String mapName) {
+        maps.remove(mapName);
+        if (mapName.endsWith(CompiledMap.EXTENSION)) {
+            CompiledMap.release(Paths.get(mapName));
+        }
+    }
+
+    /**
+     * Removes the maps loaded from the given compiled map file from the repository and stops sharing the buffer
+     * of the file, so the file is loaded again the next time it is needed. (Should be called when the file changes.)
+     * @param file the compiled map file.
+     * @see CompiledMap#release(Path)
+     */
+    public static synchronized void invalidateCompiled(Path file) {
+        Path path = file.toAbsolutePath().normalize();
+        maps.keySet().removeIf(mapName -> mapName.endsWith(CompiledMap.EXTENSION)
+                && Paths.get(mapName).toAbsolutePath().normalize().equals(path));
+        CompiledMap.release(path);
+    }
+
+    /**
+     * Removes all maps from the repository, so they are parsed again the next time they are needed.
+     * (Should be called when the tile-set changes.)
+     */
+    public static synchronized void invalidateAll() {
+        maps.clear();
+    }
+
+}
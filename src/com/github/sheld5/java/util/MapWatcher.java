@@ -0,0 +1,114 @@
+package util;
+
+import model.CompiledMap;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the map directory and reloads the maps which are changed in it, so the changes made in the map editor
+ * can be seen in the next game without restarting the application.
+ * Only the changed maps are parsed again. If the tile-set changes, all maps are removed from the MapRepository.
+ * Changed compiled maps are removed from the MapRepository, so they are loaded again the next time they are needed.
+ * @see MapRepository#setMapDirectory(Path)
+ * @see MapRepository#reload(String)
+ */
+public final class MapWatcher {
+
+    /**
+     * The extension of the map files.
+     */
+    private final static String MAP_EXTENSION = ".tmx";
+    /**
+     * The time in milliseconds for which the watcher waits for more changes before reloading the maps.
+     * (Map editors often write one file in more steps.)
+     */
+    private final static long SETTLE_TIME = 200;
+
+    /**
+     * MapWatcher only has static methods and cannot be instantiated.
+     */
+    private MapWatcher() {}
+
+    /**
+     * Starts watching the given directory on a daemon thread.
+     * @param directory the map directory.
+     * @throws IOException thrown if the directory cannot be watched.
+     */
+    public static void start(Path directory) throws IOException {
+        WatchService watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread thread = new Thread(() -> watch(watchService, directory), "Map watcher");
+        thread.setDaemon(true);
+        thread.start();
+        System.out.println("Watching maps in " + directory);
+    }
+
+    /**
+     * Waits for the changes of files in the watched directory and reloads the changed maps.
+     * @param watchService the watch service of the map directory.
+     * @param directory the map directory.
+     */
+    private static void watch(WatchService watchService, Path directory) {
+        try {
+            while (true) {
+                LinkedHashSet<String> changed = new LinkedHashSet<>();
+                WatchKey key = watchService.take();
+                while (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() != StandardWatchEventKinds.OVERFLOW) {
+                            changed.add(event.context().toString());
+                        }
+                    }
+                    key.reset();
+                    key = watchService.poll(SETTLE_TIME, TimeUnit.MILLISECONDS);
+                }
+                reload(changed, directory);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            System.out.println("Map watcher stopped");
+        }
+    }
+
+    /**
+     * Parses the changed maps again and replaces them in the MapRepository.
+     * Maps which cannot be parsed anymore are removed from the MapRepository.
+     * Compiled maps are only removed from the MapRepository.
+     * @param changed the names of the changed files.
+     * @param directory the map directory.
+     * @see MapRepository#invalidateCompiled(Path)
+     */
+    private static void reload(LinkedHashSet<String> changed, Path directory) {
+        if (changed.contains(MapRepository.TILE_SET_FILE_NAME)) {
+            MapRepository.invalidateAll();
+            System.out.println("Tile-set changed, all maps will be parsed again");
+            return;
+        }
+        for (String fileName : changed) {
+            if (fileName.endsWith(CompiledMap.EXTENSION)) {
+                MapRepository.invalidateCompiled(directory.resolve(fileName));
+                System.out.println("Compiled map " + fileName + " changed, it will be loaded again");
+                continue;
+            }
+            if (!fileName.endsWith(MAP_EXTENSION)) {
+                continue;
+            }
+            try {
+                MapRepository.reload(fileName);
+                System.out.println("Map " + fileName + " reloaded");
+            } catch (Exception e) {
+                MapRepository.invalidate(fileName);
+                System.out.println("Map " + fileName + " could not be reloaded: " + e.getMessage());
+            }
+        }
+    }
+
+}
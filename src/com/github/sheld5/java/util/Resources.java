@@ -1,14 +1,45 @@
 package util;
 
+import model.Car;
+import model.Tile;
+
 import javax.imageio.ImageIO;
+import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * Loads all image resources for the game and saves them as BufferedImage instances.
+ * The images are decoded in parallel and converted to the format of the screen,
+ * so they do not have to be converted each time they are painted.
+ * The textures of tiles and game components are packed into one atlas image scaled to the current tile-size,
+ * so each texture is painted by one drawImage() call from the same image and does not have to be scaled each time.
+ * The atlas is a grid of ATLAS_COLUMNS columns of square cells. The cells of the tiles are in the order of Tile,
+ * followed by the cells of the cars in the order of Car.Color, the crosshairs and the countdown numbers.
  */
 public class Resources {
 
+    /**
+     * Receives the progress of loading the resources.
+     * (Called from the threads loading the images.)
+     */
+    public interface ProgressListener {
+        /**
+         * Called after each image is loaded.
+         * @param loaded the number of images loaded so far.
+         * @param total the number of all images.
+         */
+        void progress(int loaded, int total);
+    }
+
     /**
      * The icon used in the head of the game frame.
      */
@@ -18,74 +49,302 @@ public class Resources {
      */
     public static BufferedImage folder;
     /**
-     * The textures used to display tiles.
+     * The texture of a sunk car.
      */
-    public static BufferedImage tileStart, tileFinish, tileCheckpoint, tileRoad, tileGrass, tileWater, tileWall, tileSand, tileIce;
+    public static BufferedImage carSunk;
+
     /**
-     * The textures of game components.
+     * The maximal number of threads used to load the images.
      */
-    public static BufferedImage carRed, carYellow, carBlue, carGreen, carSunk, crosshair, crosshairRed, one, two, three;
+    private final static int LOADER_THREADS = 4;
+    /**
+     * The names of the image files of the textures packed into the atlas in the order of their cells.
+     */
+    private final static String[] TEXTURE_FILES = {
+            "tileStart.png", "tileFinish.png", "tileCheckpoint.png", "tileRoad.png", "tileGrass.png",
+            "tileWater.png", "tileWall.png", "tileSand.png", "tileIce.png",
+            "carRed.png", "carYellow.png", "carBlue.png", "carGreen.png",
+            "crosshair.png", "crosshairRed.png", "one.png", "two.png", "three.png"
+    };
+    /**
+     * The cells of the textures of the tiles indexed by the ordinals of the tile types.
+     */
+    private final static int[] TILE_CELLS = new int[Tile.values().length];
+    /**
+     * The cells of the textures of the cars mapped by the colors of the cars.
+     */
+    private final static EnumMap<Car.Color, Integer> CAR_CELLS = new EnumMap<>(Car.Color.class);
+    /**
+     * The cells of the crosshair, the highlighted crosshair and the first countdown number. (one, two and three follow)
+     */
+    private final static int CROSSHAIR_CELL = Tile.values().length + Car.Color.values().length,
+            CROSSHAIR_RED_CELL = CROSSHAIR_CELL + 1, COUNTDOWN_CELL = CROSSHAIR_CELL + 2;
+    /**
+     * The number of columns of the atlas.
+     */
+    private final static int ATLAS_COLUMNS = 8;
+    /**
+     * The maximal number of scaled atlases kept at the same time.
+     */
+    private final static int MAX_ATLASES = 4;
+
+    static {
+        for (Tile tile : Tile.values()) {
+            TILE_CELLS[tile.ordinal()] = tile.ordinal();
+        }
+        for (Car.Color color : Car.Color.values()) {
+            CAR_CELLS.put(color, Tile.values().length + color.ordinal());
+        }
+    }
 
     /**
      * The number of errors encountered while loading the resources.
      */
-    private static int numberOfErrors = 0;
+    private static AtomicInteger numberOfErrors = new AtomicInteger();
+    /**
+     * The original textures packed into the atlas in the order of their cells.
+     */
+    private static BufferedImage[] textures = new BufferedImage[TEXTURE_FILES.length];
+    /**
+     * The atlases mapped by the size of their cells.
+     * All atlases are removed when there are too many of them, so the atlases scaled for the previous zoom-levels
+     * are replaced when the zoom-level changes.
+     */
+    private static HashMap<Integer, BufferedImage> atlases = new HashMap<>();
 
     /**
-     * Calls loadImage() method for each image.
-     * @see Resources#loadImage(String)
+     * Loads all images and waits until they are loaded.
+     * @see Resources#load(ProgressListener)
      */
     public static void load() {
-        windowIcon = loadImage("carIcon.png");
-        folder = loadImage("folder.png");
-
-        tileStart = loadImage("tileStart.png");
-        tileFinish = loadImage("tileFinish.png");
-        tileCheckpoint = loadImage("tileCheckpoint.png");
-        tileRoad = loadImage("tileRoad.png");
-        tileGrass = loadImage("tileGrass.png");
-        tileWater = loadImage("tileWater.png");
-        tileWall = loadImage("tileWall.png");
-        tileSand = loadImage("tileSand.png");
-        tileIce = loadImage("tileIce.png");
-
-        carRed = loadImage("carRed.png");
-        carYellow = loadImage("carYellow.png");
-        carBlue = loadImage("carBlue.png");
-        carGreen = loadImage("carGreen.png");
-        carSunk = loadImage("carSunk.png");
-        crosshair = loadImage("crosshair.png");
-        crosshairRed = loadImage("crosshairRed.png");
-        one = loadImage("one.png");
-        two = loadImage("two.png");
-        three = loadImage("three.png");
-
-        if (numberOfErrors == 0) {
-            System.out.println("Resources loaded successfully");
-        } else if (numberOfErrors == 1) {
-            System.out.printf("%d error occurred while loading resources\n", numberOfErrors);
-            System.out.println("The game might not work properly.");
-        } else {
-            System.out.printf("%d errors occurred while loading resources\n", numberOfErrors);
-            System.out.println("The game might not work properly.");
+        load(null).join();
+    }
+
+    /**
+     * Loads all images in parallel on a small pool of daemon threads. Returns immediately,
+     * the images can be used after the returned future is completed.
+     * @param listener receives the progress of loading. (Can be NULL.)
+     * @return the future which is completed when all images are loaded.
+     * @see Resources#loadImage(String)
+     */
+    public static CompletableFuture<Void> load(ProgressListener listener) {
+        HashMap<String, Consumer<BufferedImage>> images = new HashMap<>();
+        images.put("carIcon.png", image -> windowIcon = image);
+        images.put("folder.png", image -> folder = image);
+        images.put("carSunk.png", image -> carSunk = image);
+
+        for (int i = 0; i < TEXTURE_FILES.length; i++) {
+            int cell = i;
+            images.put(TEXTURE_FILES[i], image -> textures[cell] = image);
         }
+
+        ExecutorService loader = Executors.newFixedThreadPool(LOADER_THREADS, r -> {
+            Thread thread = new Thread(r, "Resource loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger loaded = new AtomicInteger();
+        CompletableFuture<?>[] futures = images.entrySet().stream()
+                .map(entry -> CompletableFuture.runAsync(() -> {
+                    try {
+                        entry.getValue().accept(loadImage(entry.getKey()));
+                    } finally {
+                        int count = loaded.incrementAndGet();
+                        if (listener != null) {
+                            listener.progress(count, images.size());
+                        }
+                    }
+                }, loader))
+                .toArray(CompletableFuture<?>[]::new);
+        loader.shutdown();
+
+        return CompletableFuture.allOf(futures).thenRun(() -> {
+            if (numberOfErrors.get() == 0) {
+                System.out.println("Resources loaded successfully");
+            } else if (numberOfErrors.get() == 1) {
+                System.out.printf("%d error occurred while loading resources\n", numberOfErrors.get());
+                System.out.println("The game might not work properly.");
+            } else {
+                System.out.printf("%d errors occurred while loading resources\n", numberOfErrors.get());
+                System.out.println("The game might not work properly.");
+            }
+        });
     }
 
     /**
-     * Creates a BufferedImage from a ResourceStream from the image file.
+     * Creates a BufferedImage from a ResourceStream from the image file
+     * and converts it to the format of the screen.
+     * Errors are printed and counted, so the loading of the other images continues.
      * @param fileName the name of the image file.
-     * @return the BufferedImage created from the image file.
+     * @return the BufferedImage created from the image file or NULL if the image could not be loaded.
+     * @see Resources#readImage(String)
+     * @see Resources#toCompatibleImage(BufferedImage)
      */
     private static BufferedImage loadImage(String fileName) {
         BufferedImage image = null;
         try {
-            image = ImageIO.read(Resources.class.getResourceAsStream("/images/" + fileName));
+            image = toCompatibleImage(readImage(fileName));
         } catch (IOException e) {
             System.out.println("Error while loading " + fileName);
             e.printStackTrace();
-            numberOfErrors++;
+            numberOfErrors.incrementAndGet();
         }
         return image;
     }
 
+    /**
+     * Reads the image file from the resources.
+     * @param fileName the name of the image file.
+     * @return the image read from the file.
+     * @throws IOException thrown if the file does not exist, cannot be read or is not an image in a supported format.
+     */
+    private static BufferedImage readImage(String fileName) throws IOException {
+        try (InputStream stream = Resources.class.getResourceAsStream("/images/" + fileName)) {
+            if (stream == null) {
+                throw new IOException("The image file " + fileName + " was not found.");
+            }
+            BufferedImage image = ImageIO.read(stream);
+            if (image == null) {
+                throw new IOException("The file " + fileName + " is not an image in a supported format.");
+            }
+            return image;
+        }
+    }
+
+    /**
+     * Returns the given image converted to the format of the screen.
+     * Returns the image itself if it already has the format of the screen or if there is no screen. (headless mode)
+     * @param image the image which is to be converted.
+     * @return the converted image.
+     */
+    private static BufferedImage toCompatibleImage(BufferedImage image) {
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        if (configuration == null || image.getColorModel().equals(configuration.getColorModel(image.getTransparency()))) {
+            return image;
+        }
+        BufferedImage compatible = configuration.createCompatibleImage(image.getWidth(), image.getHeight(), image.getTransparency());
+        Graphics g = compatible.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return compatible;
+    }
+
+    /**
+     * Creates an empty translucent image of the given size in the format of the screen.
+     * (In the ARGB format if there is no screen.)
+     * @param width the width of the image in pixels.
+     * @param height the height of the image in pixels.
+     * @return the created image.
+     */
+    private static BufferedImage createImage(int width, int height) {
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        if (configuration == null) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+        return configuration.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+    }
+
+    /**
+     * Returns the configuration of the default screen.
+     * @return the configuration of the default screen or NULL if there is no screen. (headless mode)
+     */
+    private static GraphicsConfiguration getGraphicsConfiguration() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return null;
+        }
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+    }
+
+    /**
+     * Paints the texture of the given tile type.
+     * @param g the graphics into which is the texture to be painted.
+     * @param tile the type of the tile.
+     * @param x the X coordinate of the upper-left corner of the texture in pixels.
+     * @param y the Y coordinate of the upper-left corner of the texture in pixels.
+     * @param size the width and height of the texture in pixels.
+     */
+    public static void drawTile(Graphics g, Tile tile, int x, int y, int size) {
+        drawCell(g, TILE_CELLS[tile.ordinal()], x, y, size);
+    }
+
+    /**
+     * Paints the texture of the car of the given color.
+     * @param g the graphics into which is the texture to be painted.
+     * @param color the color of the car.
+     * @param x the X coordinate of the upper-left corner of the texture in pixels.
+     * @param y the Y coordinate of the upper-left corner of the texture in pixels.
+     * @param size the width and height of the texture in pixels.
+     */
+    public static void drawCar(Graphics g, Car.Color color, int x, int y, int size) {
+        drawCell(g, CAR_CELLS.get(color), x, y, size);
+    }
+
+    /**
+     * Paints the texture of one tile of the crosshair.
+     * @param g the graphics into which is the texture to be painted.
+     * @param highlighted true if the highlighted (red) texture is to be painted.
+     * @param x the X coordinate of the upper-left corner of the texture in pixels.
+     * @param y the Y coordinate of the upper-left corner of the texture in pixels.
+     * @param size the width and height of the texture in pixels.
+     */
+    public static void drawCrosshair(Graphics g, boolean highlighted, int x, int y, int size) {
+        drawCell(g, highlighted ? CROSSHAIR_RED_CELL : CROSSHAIR_CELL, x, y, size);
+    }
+
+    /**
+     * Paints the number of turns a crashed car has to wait. Only numbers from 1 to 3 have a texture.
+     * @param g the graphics into which is the texture to be painted.
+     * @param turns the number which is to be painted.
+     * @param x the X coordinate of the upper-left corner of the texture in pixels.
+     * @param y the Y coordinate of the upper-left corner of the texture in pixels.
+     * @param size the width and height of the texture in pixels.
+     */
+    public static void drawCountdown(Graphics g, int turns, int x, int y, int size) {
+        if (0 < turns && turns < 4) {
+            drawCell(g, COUNTDOWN_CELL + turns - 1, x, y, size);
+        }
+    }
+
+    /**
+     * Paints the given cell of the atlas scaled to the given size.
+     * @param g the graphics into which is the cell to be painted.
+     * @param cell the index of the cell.
+     * @param x the X coordinate of the upper-left corner of the cell in pixels.
+     * @param y the Y coordinate of the upper-left corner of the cell in pixels.
+     * @param size the width and height of the cell in pixels. (At least 1 pixel is used.)
+     */
+    private static void drawCell(Graphics g, int cell, int x, int y, int size) {
+        size = Math.max(size, 1);
+        int cellX = cell % ATLAS_COLUMNS * size;
+        int cellY = cell / ATLAS_COLUMNS * size;
+        g.drawImage(getAtlas(size), x, y, x + size, y + size, cellX, cellY, cellX + size, cellY + size, null);
+    }
+
+    /**
+     * Returns the atlas with cells of the given size.
+     * The atlas is cached and created again only if it is requested in a different size. (after zooming)
+     * @param size the width and height of one cell in pixels.
+     * @return the atlas.
+     */
+    private static BufferedImage getAtlas(int size) {
+        BufferedImage atlas = atlases.get(size);
+        if (atlas == null) {
+            int rows = (textures.length + ATLAS_COLUMNS - 1) / ATLAS_COLUMNS;
+            atlas = createImage(ATLAS_COLUMNS * size, rows * size);
+            Graphics g = atlas.createGraphics();
+            for (int cell = 0; cell < textures.length; cell++) {
+                if (textures[cell] != null) {
+                    g.drawImage(textures[cell].getScaledInstance(size, size, Image.SCALE_SMOOTH),
+                            cell % ATLAS_COLUMNS * size, cell / ATLAS_COLUMNS * size, null);
+                }
+            }
+            g.dispose();
+            if (atlases.size() >= MAX_ATLASES) {
+                atlases.clear();
+            }
+            atlases.put(size, atlas);
+        }
+        return atlas;
+    }
+
 }